@@ -0,0 +1,83 @@
+package simulator;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Every ALU operation over a few different kinds of operands. Each invocation runs the operation over a whole array
+// of operand pairs, so the branch predictor can't just learn a single input
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AluBenchmark {
+
+	private static final int OPERANDS = 1024;
+
+	// Names from ProgramCompiler's table, index is the aluOp
+	private static final String[] OPERATIONS = {"move", "addition", "subtraction", "negate", "multiplication",
+		"division", "floor", "ceiling", "round", "absolute", "inverse", "minimum", "maximum", "power", "sine", "cosine",
+		"tangent", "exponent", "logarithm", "squareRoot", "registerPower"};
+
+	@Param({"addition", "subtraction", "negate", "multiplication", "division", "floor", "ceiling", "round", "absolute",
+		"inverse", "minimum", "maximum", "power", "sine", "cosine", "tangent", "exponent", "logarithm", "squareRoot",
+		"registerPower"})
+	public String operation;
+
+	// normal:       magnitudes within a few powers of two of one, which is most of what real programs do
+	// subnormalEdge: the smallest normal numbers, where results start to underflow. Actual subnormals are left out
+	//               because Round takes around 2^31 iterations on them
+	// large:        exponents near the top of the range, where results start to overflow
+	@Param({"normal", "subnormalEdge", "large"})
+	public String operands;
+
+	private int aluOp;
+	private final int[] a = new int[OPERANDS];
+	private final int[] b = new int[OPERANDS];
+
+	@Setup
+	public void setup() {
+		aluOp = Arrays.asList(OPERATIONS).indexOf(operation);
+		Random random = new Random(1);
+		for (int i = 0; i < OPERANDS; i++) {
+			a[i] = operand(random);
+			// Pow takes an unsigned integer immediate rather than a register
+			b[i] = operation.equals("power") ? random.nextInt(64) : operand(random);
+		}
+	}
+
+	private int operand(Random random) {
+		int exponent;
+		switch (operands) {
+			case "subnormalEdge": exponent = 1 + random.nextInt(8); break;
+			case "large":         exponent = 247 + random.nextInt(8); break;
+			default:              exponent = 117 + random.nextInt(20); break;
+		}
+		return (random.nextInt() & 0x807FFFFF) | exponent << 23;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERANDS)
+	public int compute() {
+		int sink = 0;
+		for (int i = 0; i < OPERANDS; i++) {
+			sink ^= Processor.ArithmeticLogicUnit.compute(aluOp, a[i], b[i]);
+		}
+		return sink;
+	}
+}
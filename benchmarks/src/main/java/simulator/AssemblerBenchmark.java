@@ -0,0 +1,80 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Getting a program ready to run: assembling the source (from memory and from a file), and mapping a program image of
+// it instead, with and without checking its checksum
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblerBenchmark {
+
+	private static final int LINES = 100_000;
+
+	private String source;
+	private Path file;
+	private Path image;
+
+	@Setup
+	public void setup() throws IOException {
+		source = SyntheticPrograms.source(LINES, 9);
+		file = Files.createTempFile("benchmark", ".txt");
+		Files.writeString(file, source);
+		image = Files.createTempFile("benchmark", ".img");
+		ProgramImage.write(Assembler.assemble(new StringReader(source)), image);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(file);
+		Files.delete(image);
+	}
+
+	// Time per line of source
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public Program assemble() throws IOException {
+		return Assembler.assemble(new StringReader(source));
+	}
+
+	// The same, read from a file the way Main does
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public Program loadSource() throws IOException {
+		return Main.load(file.toString());
+	}
+
+	// Time per instruction, including the checksum over the whole image
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public Program loadImage() throws IOException {
+		return ProgramImage.load(image);
+	}
+
+	// Only the mapping and the header checks
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public Program loadImageUnchecked() throws IOException {
+		return ProgramImage.load(image, false);
+	}
+}
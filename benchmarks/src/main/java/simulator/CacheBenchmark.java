@@ -0,0 +1,48 @@
+package simulator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The same few programs submitted over and over on the compiled engine, each one assembled and compiled from scratch
+// every time, and through a ProgramCache. Time per submission
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+	private final String[] sources = new String[8];
+	private final ProgramCache cache = new ProgramCache(1_000_000);
+	private int next;
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = SyntheticPrograms.source(5000, 100 + i);
+		}
+	}
+
+	@Benchmark
+	public int[] uncached() {
+		String source = sources[next++ % sources.length];
+		return new Processor(SyntheticPrograms.assemble(source), Processor.Engine.COMPILED).start();
+	}
+
+	@Benchmark
+	public int[] cached() {
+		String source = sources[next++ % sources.length];
+		return cache.get(source).processor(Processor.Engine.COMPILED).start();
+	}
+}
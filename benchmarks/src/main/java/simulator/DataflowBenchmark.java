@@ -0,0 +1,63 @@
+package simulator;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A long program made of 8 independent computations, each using its own pair of registers, interleaved. Run
+// sequentially on the threaded engine and by the dataflow scheduler on the common pool. On a single core this only
+// measures what the scheduling costs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataflowBenchmark {
+
+	private ThreadedEngine threaded;
+	private DataflowScheduler scheduler;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(21);
+		String[] operations = {"Fadd", "Fsub", "Fmul", "Min", "Max", "Sqrt", "Fabs"};
+		StringBuilder source = new StringBuilder();
+		for (int reg = 0; reg < 16; reg++) {
+			source.append("Set R").append(reg).append(", #").append(1 + random.nextInt(100) / 10.0).append('\n');
+		}
+		for (int i = 0; i < 2_000_000; i++) {
+			int base = 2 * random.nextInt(8);
+			int dest = base + random.nextInt(2);
+			source.append(operations[random.nextInt(operations.length)]).append(" R").append(dest).append(", R").append(base)
+				.append(", R").append(base + 1).append('\n');
+			if (i % 1000 == 999) {
+				source.append("Get R").append(dest).append('\n');
+			}
+		}
+		Processor.DecodedProgram program = Processor.DecodedProgram.decode(SyntheticPrograms.assemble(source.toString()));
+		threaded = new ThreadedEngine(program);
+		scheduler = new DataflowScheduler(program, 0, ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public int[] sequential() {
+		return threaded.run(new int[16]);
+	}
+
+	@Benchmark
+	public int[] scheduled() {
+		return scheduler.run(new int[16]);
+	}
+}
@@ -0,0 +1,69 @@
+package simulator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A degree 8 polynomial by Horner's rule on the compiled engine, as it's written and with its Fmul/Fadd pairs fused
+// into Fma by the optimizer. Time per evaluation
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FmaBenchmark {
+
+	private static final int POINTS = 1 << 16;
+
+	private ProgramCompiler.Kernel separate, fused;
+	private final int[] x = new int[POINTS];
+	private final int[] registers = new int[16];
+
+	@Setup
+	public void setup() {
+		StringBuilder source = new StringBuilder("Set R2, #0.125\n");
+		for (int k = 7; k >= 0; k--) {
+			source.append("Set R3, #").append(k % 2 == 0 ? 0.5 : -0.25).append("\nFmul R2, R2, R1\nFadd R2, R2, R3\n");
+		}
+		Program program = SyntheticPrograms.assemble(source.append("Get R2\n").toString());
+		separate = ProgramCompiler.compile(Processor.DecodedProgram.decode(program));
+		fused = ProgramCompiler.compile(Processor.DecodedProgram.decode(ProgramOptimizer.optimize(program, true).program));
+		Random random = new Random(7);
+		for (int i = 0; i < POINTS; i++) {
+			x[i] = Float.floatToIntBits(random.nextFloat() * 2 - 1);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int separate() {
+		return evaluate(separate);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int fused() {
+		return evaluate(fused);
+	}
+
+	private int evaluate(ProgramCompiler.Kernel kernel) {
+		int sink = 0;
+		for (int i = 0; i < POINTS; i++) {
+			registers[1] = x[i];
+			sink += kernel.run(registers)[0];
+		}
+		return sink;
+	}
+}
@@ -0,0 +1,57 @@
+package simulator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A damped iteration run 200,000 times: as a loop on the tracing engine, compiled to a trace and only interpreted, and
+// unrolled into a straight line program on the compiled engine. Time per trip
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopBenchmark {
+
+	private static final int TRIPS = 200_000;
+
+	@Param({"traced", "interpreted", "unrolled"})
+	public String kernel;
+
+	private ProgramCompiler.Kernel compiled;
+
+	@Setup
+	public void setup() {
+		String setup = "Set R2, #1.0\nSet R5, #1.0001\nSet R6, #0.5\nSet R7, #0.999\nSet R8, #3.0\n";
+		String body = "Fmul R2, R2, R5\nFadd R2, R2, R6\nFmul R2, R2, R7\nFdiv R4, R2, R8\n";
+		if (kernel.equals("unrolled")) {
+			StringBuilder unrolled = new StringBuilder(setup);
+			for (int i = 0; i < TRIPS; i++) {
+				unrolled.append(body);
+			}
+			Program straight = SyntheticPrograms.assemble(unrolled.append("Get R2\nGet R4\n").toString());
+			compiled = ProgramCompiler.compile(Processor.DecodedProgram.decode(straight));
+		} else {
+			Program loop = SyntheticPrograms.assemble(setup + "Set R3, #" + TRIPS + "\nstep: " + body + "Loop R3, step\nGet R2\nGet R4\n");
+			compiled = new TracingEngine(Processor.DecodedProgram.decode(loop), kernel.equals("traced"));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRIPS)
+	public int[] run() {
+		return compiled.run(new int[16]);
+	}
+}
@@ -0,0 +1,56 @@
+package simulator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A batch that takes Sin, Cos, Exp, Log, Sqrt and Tan of every lane, where each lane's angle is one of 64 values. With
+// and without a memo cache, which is kept between invocations like it would be between batches. Time per lane
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoBenchmark {
+
+	private static final int LANES = 1 << 16;
+
+	private final int[][] registers = new int[16][LANES];
+	private BatchProcessor computed, memoized;
+
+	@Setup
+	public void setup() {
+		Program program = SyntheticPrograms.assemble("Sin R2, R1\nCos R3, R1\nExp R4, R1\nLog R5, R1\nSqrt R6, R1\nTan R7, R1\n");
+		Random random = new Random(9);
+		for (int lane = 0; lane < LANES; lane++) {
+			registers[1][lane] = Float.floatToIntBits(random.nextInt(64) / 16.0f + 0.01f);
+		}
+		computed = new BatchProcessor(program);
+		memoized = new BatchProcessor(program);
+		memoized.setMemo(new MemoCache(1024));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LANES)
+	public int[][] computed() {
+		return computed.runBits(registers);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LANES)
+	public int[][] memoized() {
+		return memoized.runBits(registers);
+	}
+}
@@ -0,0 +1,78 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// y = y * 0.5 + 0.25 over a 4M float file: in place through the mapping with Load and Store in a traced loop, and
+// streamed into a second file through a StreamingKernel. It converges on 0.5, so running it again and again doesn't
+// change the timing. Time per element
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+
+	private static final int ELEMENTS = 1 << 22;
+
+	private Path input, output;
+	private DataSegment memory;
+	private Processor mapped;
+	private StreamingKernel streamed;
+
+	@Setup
+	public void setup() throws IOException {
+		String work = "Set R2, #0.5\nSet R6, #0.25\n";
+		Program loop = SyntheticPrograms.assemble(work + "Set R3, #" + ELEMENTS + "\nstep: Load R1, -1(R3)\nFmul R1, R1, R2\n"
+			+ "Fadd R1, R1, R6\nStore R1, -1(R3)\nLoop R3, step\n");
+		streamed = new StreamingKernel(SyntheticPrograms.assemble(work + "Fmul R1, R1, R2\nFadd R1, R1, R6\nGet R1\n"), 1);
+
+		input = Files.createTempFile("benchmark", ".f32");
+		output = Files.createTempFile("benchmark", ".f32");
+		ByteBuffer values = ByteBuffer.allocate(ELEMENTS * 4);
+		for (int i = 0; i < ELEMENTS; i++) {
+			values.putFloat(i % 1000);
+		}
+		Files.write(input, values.array());
+		memory = DataSegment.map(input, true);
+		mapped = new Processor(loop, Processor.Engine.COMPILED);
+		mapped.setMemory(memory);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		memory.close();
+		Files.delete(input);
+		Files.delete(output);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public int[] inPlace() {
+		mapped.setRegisters(new int[16]);
+		return mapped.start();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public long streamed() throws IOException {
+		return streamed.transform(input, output);
+	}
+}
@@ -0,0 +1,64 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whole programs through Processor.start() on each engine. The program is assembled, decoded and compiled once up
+// front, so this is the cost of a run, like a program coming out of the ProgramCache.
+// The example programs are looked for in the directory given by -Dprograms.dir, or the working directory
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramBenchmark {
+
+	// Program1 to 3 are the examples, synthetic is a long random straight line program
+	@Param({"1", "2", "3", "synthetic"})
+	public String program;
+
+	@Param({"STRUCTURAL", "DECODED", "THREADED", "COMPILED", "DATAFLOW"})
+	public String engine;
+
+	private Program assembled;
+	private Processor.Engine kind;
+	private Processor.DecodedProgram decoded;
+	private ProgramCompiler.Kernel kernel;
+
+	@Setup
+	public void setup() throws IOException {
+		if (program.equals("synthetic")) {
+			assembled = SyntheticPrograms.program(100_000, 3);
+		} else {
+			Path file = Paths.get(System.getProperty("programs.dir", "."), "Program" + program + ".txt");
+			if (!Files.exists(file)) {
+				throw new RuntimeException("Can't find " + file.toAbsolutePath() + ", run from the top directory or set -Dprograms.dir");
+			}
+			assembled = Main.load(file.toString());
+		}
+		kind = Processor.Engine.valueOf(engine);
+		decoded = Processor.DecodedProgram.decode(assembled);
+		kernel = kind == Processor.Engine.STRUCTURAL || kind == Processor.Engine.DECODED ? null : Processor.kernel(decoded, kind);
+	}
+
+	@Benchmark
+	public int[] start() {
+		return new Processor(assembled, kind, decoded, kernel).start();
+	}
+}
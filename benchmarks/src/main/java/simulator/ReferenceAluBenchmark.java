@@ -0,0 +1,72 @@
+package simulator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The constant time adder against the original one kept in ReferenceAlu. The operands are a mix of random bits,
+// special values and nearby normal numbers, so the original's early outs and alignment loop all get used
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceAluBenchmark {
+
+	private static final int OPERANDS = 1 << 16;
+
+	private static final int[] SPECIAL_VALUES = {0x00000000, 0x80000000, 0x7F800000, 0xFF800000, 0x7FFFFFFF, 0xFFFFFFFF,
+		0x7FC00000, 0x00000001, 0x807FFFFF, 0x00800000, 0x7F7FFFFF, 0xFF7FFFFF, 0x3F800000, 0xBF800000, 0x3F7FFFFF};
+
+	private final int[] a = new int[OPERANDS];
+	private final int[] b = new int[OPERANDS];
+
+	@Setup
+	public void setup() {
+		Random random = new Random(5);
+		for (int i = 0; i < OPERANDS; i++) {
+			a[i] = operand(random);
+			b[i] = operand(random);
+		}
+	}
+
+	private static int operand(Random random) {
+		switch (random.nextInt(4)) {
+			case 0:  return random.nextInt();
+			case 1:  return SPECIAL_VALUES[random.nextInt(SPECIAL_VALUES.length)];
+			default: return (random.nextInt() & 0x807FFFFF) | ((random.nextInt(40) + 107) << 23);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERANDS)
+	public int original() {
+		int sink = 0;
+		for (int i = 0; i < OPERANDS; i++) {
+			sink ^= ReferenceAlu.addition(a[i], b[i]);
+		}
+		return sink;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERANDS)
+	public int current() {
+		int sink = 0;
+		for (int i = 0; i < OPERANDS; i++) {
+			sink ^= Processor.ArithmeticLogicUnit.addition(a[i], b[i]);
+		}
+		return sink;
+	}
+}
@@ -0,0 +1,62 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Program1 with the angle as an input, streamed over a file of angles into another file. Time per record
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingBenchmark {
+
+	private static final int RECORDS = 1 << 20;
+
+	private StreamingKernel kernel;
+	private Path input, output;
+
+	@Setup
+	public void setup() throws IOException {
+		String source = "Set R2, #3.14159265\nFmul R1, R1, R2\nSet R2, #180.0\nFdiv R1, R1, R2\nCos R2, R1\n"
+			+ "Set R3, #0.4\nFmul R2, R2, R3\nSin R1, R1\nFadd R1, R1, R2\nSet R2, #100.0\nFmul R1, R1, R2\n"
+			+ "Set R2, #9.81\nFmul R1, R1, R2\nGet R1\n";
+		kernel = new StreamingKernel(SyntheticPrograms.assemble(source), 1);
+		input = Files.createTempFile("benchmark", ".f32");
+		output = Files.createTempFile("benchmark", ".f32");
+		ByteBuffer angles = ByteBuffer.allocate(RECORDS * 4);
+		for (int i = 0; i < RECORDS; i++) {
+			angles.putFloat(i % 90);
+		}
+		Files.write(input, angles.array());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(input);
+		Files.delete(output);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long transform() throws IOException {
+		return kernel.transform(input, output);
+	}
+}
@@ -0,0 +1,48 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+// Programs for the benchmarks to run. The synthetic ones are random straight line programs using the cheap and common
+// operations, with a Get every so often, so they can be made as long as needed
+class SyntheticPrograms {
+
+	static Program program(int length, long seed) {
+		return assemble(source(length, seed));
+	}
+
+	static String source(int length, long seed) {
+		String[] operations = {"Fadd", "Fsub", "Fmul", "Fdiv", "Min", "Max", "Fneg", "Fabs", "Move", "Sqrt"};
+		Random random = new Random(seed);
+		StringBuilder source = new StringBuilder();
+		for (int reg = 0; reg < 16; reg++) {
+			source.append("Set R").append(reg).append(", #").append(1 + random.nextInt(1000) / 100.0).append('\n');
+		}
+		for (int lines = 16; lines < length; lines++) {
+			int dest = random.nextInt(16), src1 = random.nextInt(16), src2 = random.nextInt(16);
+			int choice = random.nextInt(operations.length + 1);
+			if (choice == operations.length) {
+				if (random.nextInt(8) == 0) {
+					source.append("Get R").append(dest);
+				} else {
+					source.append("Set R").append(dest).append(", #").append(random.nextInt(1000) / 10.0).append("\t\t-- Constant");
+				}
+			} else if (choice < 6) {
+				source.append(operations[choice]).append(" R").append(dest).append(", R").append(src1).append(", R").append(src2);
+			} else {
+				source.append(operations[choice]).append(" R").append(dest).append(", R").append(src1);
+			}
+			source.append('\n');
+		}
+		return source.toString();
+	}
+
+	static Program assemble(String source) {
+		try {
+			return Assembler.assemble(new StringReader(source));
+		} catch (IOException e) {
+			throw new RuntimeException(e); // Can't happen reading from memory
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package simulator;
+
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The decoded engine with each kind of tracer, per instruction. Off should be as fast as the engine gets, everything
+// else pays for at least the call into the tracer per instruction. The buffered tracer is made (and its drainer
+// started and stopped) every run, the same as Main does
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark {
+
+	private static final int LENGTH = 100_000;
+
+	// noop is a tracer that asks for every instruction and does nothing with them
+	@Param({"off", "noop", "buffered", "printing"})
+	public String tracer;
+
+	private Program program;
+	private Processor.DecodedProgram decoded;
+	private final PrintStream nowhere = new PrintStream(PrintStream.nullOutputStream());
+
+	private final Tracer callsOnly = new Tracer() {
+		@Override
+		public Level level() {
+			return Level.INSTRUCTIONS;
+		}
+
+		@Override
+		public void result(int reg, int value) {
+
+		}
+
+		@Override
+		public void instruction(int count, int rr1, int rr2, int wr, int wd) {
+
+		}
+	};
+
+	@Setup
+	public void setup() {
+		program = SyntheticPrograms.program(LENGTH, 3);
+		decoded = Processor.DecodedProgram.decode(program);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LENGTH)
+	public int[] run() {
+		Processor processor = new Processor(program, Processor.Engine.DECODED, decoded, null);
+		switch (tracer) {
+			case "noop":
+				processor.setTracer(callsOnly);
+				return processor.start();
+			case "buffered":
+				try (Tracer.Buffered buffered = new Tracer.Buffered(Tracer.Level.INSTRUCTIONS, Writer.nullWriter(), 1 << 16)) {
+					processor.setTracer(buffered);
+					return processor.start();
+				}
+			case "printing":
+				processor.setTracer(new Tracer.Printing(Tracer.Level.INSTRUCTIONS, nowhere));
+				return processor.start();
+			default:
+				return processor.start();
+		}
+	}
+}
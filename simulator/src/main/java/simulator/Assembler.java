@@ -0,0 +1,479 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Turns assembly source into a Program in a single pass. The source is read a block at a time and each line is
+// tokenized by hand straight out of a reused buffer, so there's no regex and nothing allocated per line, and the
+// file never has to be in memory all at once. The instructions go straight into the Program.Builder.
+//
+// A line is a mnemonic followed by its operands, separated by any mix of spaces, tabs and commas. Registers are
+// written R0 to R15, immediates may start with a #, and -- starts a comment that runs to the end of the line.
+// Anything wrong with a line is thrown as a RuntimeException that starts with the line number
+//
+// A line can start with a label, a name followed by a colon, which the branches use as their target:
+//
+//     loop: Fmul R1, R1, R2
+//           Loop R3, loop     -- R3 = R3 - 1, back to loop while R3 > 0
+//           Blt R1, R4, loop  -- Also Beq, Bne and Bge, comparing two registers
+//
+// Labels can be used before they're defined, the targets get filled in once the whole file has been read.
+//
+// Load and Store take a register and an address, an offset in elements from a base register like 4(R2) or -1(R3),
+// and (R2) is the same as 0(R2)
+class Assembler {
+
+	// Index in the array is the opcode
+	static final String[] INSTRUCTION_NAMES = {"Set","Get","Move","Fadd","Fsub","Fneg","Fmul","Fdiv","Floor","Ceil","Round",
+		"Fabs","Finv","Min","Max","Pow","Sin","Cos","Tan","Exp","Log","Sqrt","Fpow","Beq","Bne","Blt","Bge","Loop","Load","Store","Fma"};
+
+	private static final int SET = 0, GET = 1, POW = 15, BEQ = 23, BGE = 26, LOOP = 27, LOAD = 28, STORE = 29, FMA = 30;
+	private static final int MAX_TOKENS = 6; // Label, mnemonic and up to four operands
+	static final int MAX_TARGET = 0x7FFFF; // Branch targets are 19 bit instruction indexes
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	// Mnemonic lookup. Each mnemonic is packed 7 bits a character into a long and hashed by multiplying it by a
+	// constant that's picked when the class loads so that no two mnemonics share a slot, so a lookup is one multiply
+	// and one compare
+	private static final int MAX_MNEMONIC = 9; // 9 * 7 bits still fits in a long
+	private static final int TABLE_BITS = 6;
+	private static final long[] MNEMONIC_KEYS = new long[1 << TABLE_BITS];
+	private static final int[] MNEMONIC_OPCODES = new int[1 << TABLE_BITS];
+	private static final long MULTIPLIER = perfectMultiplier();
+
+	// Powers of ten that are exact in double precision
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+		1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private final Reader in;
+	private final Program.Builder program = new Program.Builder();
+	private final char[] block = new char[BLOCK_SIZE];
+	private char[] line = new char[256]; // Current line, grows if a line is longer than this
+	private int lineLength = 0;
+	private int lineNumber = 0;
+	private final int[] tokenStart = new int[MAX_TOKENS];
+	private final int[] tokenEnd = new int[MAX_TOKENS];
+	private final Map<String, Integer> labels = new HashMap<>();
+	private final List<Fixup> fixups = new ArrayList<>();
+
+	// A branch whose target gets filled in at the end
+	private static final class Fixup {
+		final int index, line;
+		final String label;
+
+		Fixup(int index, int line, String label) {
+			this.index = index;
+			this.line = line;
+			this.label = label;
+		}
+	}
+
+	private Assembler(Reader in) {
+		this.in = in;
+	}
+
+	static Program assemble(Reader in) throws IOException {
+		return new Assembler(in).run();
+	}
+
+	static Program assemble(ReadableByteChannel in) throws IOException {
+		return assemble(Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), BLOCK_SIZE));
+	}
+
+	private Program run() throws IOException {
+		int read;
+		while ((read = in.read(block, 0, BLOCK_SIZE)) != -1) {
+			int start = 0;
+			for (int i = 0; i < read; i++) {
+				if (block[i] == '\n') {
+					append(start, i);
+					translateLine();
+					start = i + 1;
+				}
+			}
+			append(start, read); // Rest of a line that carries on into the next block
+		}
+		if (lineLength > 0) {
+			translateLine(); // Last line didn't end with a newline
+		}
+		for (Fixup fixup : fixups) {
+			Integer target = labels.get(fixup.label);
+			if (target == null) {
+				throw new RuntimeException("Line " + fixup.line + ": Unknown label: " + fixup.label);
+			}
+			if (target > MAX_TARGET) {
+				throw new RuntimeException("Line " + fixup.line + ": Label " + fixup.label + " is past instruction " + MAX_TARGET
+					+ ", too far to branch to");
+			}
+			program.set(fixup.index, withTarget(program.instruction(fixup.index), target));
+		}
+		return program.build();
+	}
+
+	// Compare and branch has no field left that's wide enough, so the top 4 bits of the target go where the dest
+	// would be and the low 15 after the two sources. Loop only has the one register, so the target is bits 18-0
+	static int withTarget(int instruction, int target) {
+		if (instruction >>> 27 == LOOP) {
+			return instruction & ~MAX_TARGET | target;
+		}
+		return instruction & ~(0xF << 23 | 0x7FFF) | (target >>> 15) << 23 | target & 0x7FFF;
+	}
+
+	private void append(int from, int to) {
+		int count = to - from;
+		if (lineLength + count > line.length) {
+			line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + count));
+		}
+		System.arraycopy(block, from, line, lineLength, count);
+		lineLength += count;
+	}
+
+	// Adds the instruction on the current line to the program, if it had one
+	private void translateLine() {
+		lineNumber++;
+		int tokens = tokenize();
+		lineLength = 0;
+		if (tokens == 0) {
+			return; // Blank, or just a comment
+		}
+		if (line[tokenEnd[0] - 1] == ':') {
+			label(tokenStart[0], tokenEnd[0] - 1);
+			if (--tokens == 0) {
+				return; // Only a label, it goes with the next instruction
+			}
+			System.arraycopy(tokenStart, 1, tokenStart, 0, tokens);
+			System.arraycopy(tokenEnd, 1, tokenEnd, 0, tokens);
+		}
+
+		int opcode = lookup(tokenStart[0], tokenEnd[0]);
+		if (opcode == -1) {
+			throw error("Bad instruction keyword: " + token(0));
+		}
+
+		int flt = 0, src1 = 0, src2 = 0;
+		if (opcode == SET) { // F Type - The immediate goes into the custom 23 bit format
+			operands(tokens, 2, 2);
+			flt = Float.floatToIntBits(immediate(tokenStart[2], tokenEnd[2]));
+
+			int sign = (flt >>> 9) & 0x400000;
+			int exp = ((((flt & 0x7f800000) >>> 23) - 112) << 17) & 0x3E0000;
+			int manti = (flt >>> 7) & 0x1FFFF;
+			src1 = sign | exp | manti;
+		} else if (opcode == GET) {
+			operands(tokens, 1, 1);
+		} else if (opcode >= BEQ && opcode <= BGE) { // B type - Two registers to compare, and the target
+			operands(tokens, 3, 3);
+			program.add(opcode << 27 | register(1) << 19 | register(2) << 15);
+			branchTo(3);
+			return;
+		} else if (opcode == LOOP) { // The counter register, and the target
+			operands(tokens, 2, 2);
+			program.add(opcode << 27 | register(1) << 23);
+			branchTo(2);
+			return;
+		} else if (opcode == LOAD || opcode == STORE) { // M type - The register loaded or stored, then offset(base)
+			operands(tokens, 2, 2);
+			program.add(opcode << 27 | register(1) << 23 | address(2));
+			return;
+		} else if (opcode == FMA) { // R4 type - Rd = Ra * Rb + Rc, the third source goes in bits 14-11
+			operands(tokens, 4, 4);
+			program.add(opcode << 27 | register(1) << 23 | register(2) << 19 | register(3) << 15 | register(4) << 11);
+			return;
+		} else if (opcode == POW) { // I type - The second source is an unsigned int
+			operands(tokens, 3, 3);
+			src1 = register(2);
+			src2 = unsigned(3);
+		} else { // R type - All sources are registers, and unary ones can leave out the second
+			operands(tokens, 2, 3);
+			src1 = register(2);
+			if (tokens == 4) {
+				src2 = register(3);
+			}
+		}
+		int dest = register(1);
+
+		int instruction = opcode << 27 | dest << 23 | src1 << (opcode == SET ? 0 : 19) | src2 << (opcode == POW ? 0 : 15);
+
+		// Work around for out of bound immediates, the processor uses the full precision value instead
+		int exponent = ((flt & 0x7f800000) >>> 23) - 112;
+		if (opcode == SET && (exponent < 0 || exponent > 31)) {
+			program.add(instruction, flt);
+		} else {
+			program.add(instruction);
+		}
+	}
+
+	private void label(int from, int to) {
+		if (from == to) {
+			throw error("Missing label name");
+		}
+		for (int i = from; i < to; i++) {
+			char c = line[i];
+			if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+				throw error("Bad label: " + new String(line, from, to - from));
+			}
+		}
+		String name = new String(line, from, to - from);
+		if (labels.putIfAbsent(name, program.length()) != null) {
+			throw error("Label " + name + " is already defined");
+		}
+	}
+
+	// The target of the branch that was just added
+	private void branchTo(int index) {
+		fixups.add(new Fixup(program.length() - 1, lineNumber, token(index)));
+	}
+
+	// Splits the line into tokens, stopping at a comment. Returns how many there were
+	private int tokenize() {
+		int tokens = 0;
+		int i = 0;
+		while (i < lineLength) {
+			char c = line[i];
+			if (c == ' ' || c == ',' || c == '\t' || c == '\r') {
+				i++;
+				continue;
+			}
+			if (isComment(i)) {
+				break;
+			}
+			if (tokens == MAX_TOKENS) {
+				throw error("Too many operands");
+			}
+			tokenStart[tokens] = i;
+			while (i < lineLength && (c = line[i]) != ' ' && c != ',' && c != '\t' && c != '\r' && !isComment(i)) {
+				i++;
+			}
+			tokenEnd[tokens++] = i;
+		}
+		return tokens;
+	}
+
+	private boolean isComment(int i) {
+		return line[i] == '-' && i + 1 < lineLength && line[i + 1] == '-';
+	}
+
+	private void operands(int tokens, int min, int max) {
+		if (tokens - 1 < min || tokens - 1 > max) {
+			String expected = min == max ? Integer.toString(min) : min + " or " + max;
+			throw error(token(0) + " takes " + expected + " operands, found " + (tokens - 1));
+		}
+	}
+
+	private static long perfectMultiplier() {
+		for (long attempt = 0; ; attempt++) {
+			long multiplier = 0x9E3779B97F4A7C15L * (2 * attempt + 1); // Odd multiples of it keep the top bits well mixed
+			Arrays.fill(MNEMONIC_KEYS, 0);
+			Arrays.fill(MNEMONIC_OPCODES, -1);
+			boolean collision = false;
+			for (int opcode = 0; opcode < INSTRUCTION_NAMES.length && !collision; opcode++) {
+				String name = INSTRUCTION_NAMES[opcode];
+				long key = 0;
+				for (int i = 0; i < name.length(); i++) {
+					key = key << 7 | name.charAt(i);
+				}
+				int slot = (int) ((key * multiplier) >>> (64 - TABLE_BITS));
+				collision = MNEMONIC_OPCODES[slot] != -1;
+				MNEMONIC_KEYS[slot] = key;
+				MNEMONIC_OPCODES[slot] = opcode;
+			}
+			if (!collision) {
+				return multiplier;
+			}
+		}
+	}
+
+	// Returns the opcode, or -1 if it isn't a mnemonic
+	private int lookup(int from, int to) {
+		if (to - from > MAX_MNEMONIC) {
+			return -1;
+		}
+		long key = 0;
+		for (int i = from; i < to; i++) {
+			char c = line[i];
+			if (c >= 0x80) {
+				return -1;
+			}
+			key = key << 7 | c;
+		}
+		int slot = (int) ((key * MULTIPLIER) >>> (64 - TABLE_BITS));
+		return MNEMONIC_KEYS[slot] == key ? MNEMONIC_OPCODES[slot] : -1;
+	}
+
+	private int register(int index) {
+		int from = tokenStart[index], to = tokenEnd[index];
+		if (line[from] == 'R') {
+			from++;
+		}
+		int value = digits(from, to, 15);
+		if (value == -1) {
+			throw error("Bad register: " + token(index));
+		}
+		return value;
+	}
+
+	// The I type immediate, which has 19 bits
+	private int unsigned(int index) {
+		int from = tokenStart[index];
+		if (line[from] == '#') {
+			from++;
+		}
+		int value = digits(from, tokenEnd[index], 0x7FFFF);
+		if (value == -1) {
+			throw error("Bad integer immediate: " + token(index));
+		}
+		return value;
+	}
+
+	// offset(Rn) as the base register in bits 22-19 and the offset as a signed 19 bit number below it
+	private int address(int index) {
+		int from = tokenStart[index], to = tokenEnd[index];
+		int open = from;
+		while (open < to && line[open] != '(') {
+			open++;
+		}
+		if (open == to || line[to - 1] != ')' || open + 1 == to - 1) {
+			throw error("Bad address, expected offset(register): " + token(index));
+		}
+		boolean negative = open > from && line[from] == '-';
+		int offset = open == from ? 0 : digits(negative ? from + 1 : from, open, negative ? 0x40000 : 0x3FFFF);
+		if (offset == -1) {
+			throw error("Bad address offset, it has to be between -262144 and 262143: " + token(index));
+		}
+		int base = digits(line[open + 1] == 'R' ? open + 2 : open + 1, to - 1, 15);
+		if (base == -1) {
+			throw error("Bad register: " + new String(line, open + 1, to - open - 2));
+		}
+		return base << 19 | (negative ? -offset : offset) & 0x7FFFF;
+	}
+
+	// Decimal number no larger than max, or -1 if it isn't one
+	private int digits(int from, int to, int max) {
+		if (from == to) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			int digit = line[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+			if (value > max) {
+				return -1;
+			}
+		}
+		return value;
+	}
+
+	private float immediate(int from, int to) {
+		if (from < to && line[from] == '#') {
+			from++;
+		}
+		float value = parseFloat(line, from, to);
+		if (value == value || isNaN(line, from, to)) { // Only a literal NaN is allowed to come back as NaN
+			return value;
+		}
+		throw error("Bad floating point immediate: " + new String(line, from, to - from));
+	}
+
+	private static boolean isNaN(char[] chars, int from, int to) {
+		return to - from == 3 && chars[from] == 'N' && chars[from + 1] == 'a' && chars[from + 2] == 'N';
+	}
+
+	// Same result as Float.parseFloat, without making a String for the common case of a plain decimal with at most 15
+	// significant digits. Those are worked out in double precision, where the product or quotient with an exact power
+	// of ten is correctly rounded, and then rounded again to float. That second rounding can only go wrong if the
+	// double landed exactly halfway between two floats, so those (and everything else) go through Float.parseFloat.
+	// Returns NaN if it isn't a number
+	static float parseFloat(char[] chars, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+			negative = chars[i++] == '-';
+		}
+
+		long mantissa = 0;
+		int digits = 0, scale = 0;
+		boolean any = false, point = false;
+		for (; i < to; i++) {
+			char c = chars[i];
+			if (c == '.' && !point) {
+				point = true;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				break;
+			}
+			any = true;
+			if (mantissa != 0 || c != '0') {
+				if (++digits > 15) {
+					return slowParse(chars, from, to);
+				}
+				mantissa = mantissa * 10 + (c - '0');
+			}
+			if (point) {
+				scale--;
+			}
+		}
+		if (!any) {
+			return slowParse(chars, from, to);
+		}
+
+		if (i < to && (chars[i] == 'e' || chars[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+				negativeExponent = chars[i++] == '-';
+			}
+			int exponent = 0, start = i;
+			for (; i < to && chars[i] >= '0' && chars[i] <= '9' && exponent < 1000; i++) {
+				exponent = exponent * 10 + (chars[i] - '0');
+			}
+			if (i == start) {
+				return slowParse(chars, from, to);
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		if (i != to) {
+			return slowParse(chars, from, to); // Suffixes, hex, Infinity and anything else that isn't plain decimal
+		}
+
+		if (mantissa == 0) {
+			return negative ? -0.0f : 0.0f;
+		}
+		if (scale < -22 || scale > 22) {
+			return slowParse(chars, from, to);
+		}
+		double value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+		// Halfway between two floats, or outside the normal range where floats have fewer bits
+		if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L || value < 0x1p-126 || value > 0x1p127) {
+			return slowParse(chars, from, to);
+		}
+		return (float) (negative ? -value : value);
+	}
+
+	private static float slowParse(char[] chars, int from, int to) {
+		try {
+			return Float.parseFloat(new String(chars, from, to - from));
+		} catch (NumberFormatException e) {
+			return Float.NaN;
+		}
+	}
+
+	private String token(int index) {
+		return new String(line, tokenStart[index], tokenEnd[index] - tokenStart[index]);
+	}
+
+	private RuntimeException error(String message) {
+		return new RuntimeException("Line " + lineNumber + ": " + message);
+	}
+}
@@ -0,0 +1,147 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs one program over many sets of starting register values at once. The registers are stored as one array per
+// register with an entry for every lane (input set), and each instruction is run across all the lanes before moving
+// on to the next one. That way the program is only decoded once per batch and every instruction is a simple loop
+// over contiguous arrays
+class BatchProcessor {
+
+	private final Processor.DecodedProgram program;
+	private final boolean vectorized;
+	private MemoCache memo; // Null unless the slow unary operations are being remembered
+
+	BatchProcessor(Program program) {
+		this(program, false);
+	}
+
+	// Vectorized runs the operations that VectorLanes supports as SIMD lane operations, and needs the
+	// jdk.incubator.vector module. Everything else still goes through the ALU one lane at a time
+	BatchProcessor(Program program, boolean vectorized) {
+		this.program = Processor.DecodedProgram.decode(program);
+		this.vectorized = vectorized;
+		if (this.program.hasBranches()) {
+			throw new RuntimeException("Batches can't run programs with branches, the lanes could go different ways");
+		}
+		if (this.program.usesMemory()) {
+			throw new RuntimeException("Batches can't run programs with Load or Store, the lanes would share one data segment");
+		}
+	}
+
+	// Lanes often take Sin, Cos and so on of the same few values, this lets them share the results. Null turns it off
+	void setMemo(MemoCache memo) {
+		this.memo = memo;
+	}
+
+	// registers[reg][lane] holds the starting values, and every register needs the same number of lanes.
+	// Returns outputs[get][lane] for each Get in the program, or the final registers if there weren't any
+	float[][] run(float[][] registers) {
+		int[][] bits = new int[registers.length][];
+		for (int reg = 0; reg < registers.length; reg++) {
+			bits[reg] = new int[registers[reg].length];
+			for (int lane = 0; lane < bits[reg].length; lane++) {
+				bits[reg][lane] = Float.floatToRawIntBits(registers[reg][lane]);
+			}
+		}
+
+		int[][] results = runBits(bits);
+		float[][] outputs = new float[results.length][];
+		for (int i = 0; i < results.length; i++) {
+			outputs[i] = new float[results[i].length];
+			for (int lane = 0; lane < outputs[i].length; lane++) {
+				outputs[i][lane] = Float.intBitsToFloat(results[i][lane]);
+			}
+		}
+		return outputs;
+	}
+
+	// Same as run, but works directly on the bit patterns and updates the register lanes in place
+	int[][] runBits(int[][] registers) {
+		if (registers.length != 16) {
+			throw new RuntimeException("Expected lanes for all 16 registers, got " + registers.length);
+		}
+		int lanes = registers[0].length;
+		for (int[] reg : registers) {
+			if (reg.length != lanes) {
+				throw new RuntimeException("Every register needs the same number of lanes");
+			}
+		}
+
+		List<int[]> outputs = new ArrayList<>();
+		for (int i = 0; i < program.length; i++) {
+			int[] dest = registers[program.dest[i]];
+
+			if (program.opcode[i] == 1) { // Get
+				outputs.add(dest.clone());
+			} else if (program.regWriteSrc[i] != 0) { // Set
+				Arrays.fill(dest, program.src2[i]);
+			} else if (program.aluOp[i] == 21) { // Fma, the only one with a third input
+				int[] a = registers[program.src1[i]], b = registers[program.src2[i]], c = registers[program.src3[i]];
+				for (int lane = 0; lane < lanes; lane++) {
+					dest[lane] = Processor.ArithmeticLogicUnit.fusedMultiplyAdd(a[lane], b[lane], c[lane]);
+				}
+			} else if (memo != null && MemoCache.memoizes(program.aluOp[i])) {
+				int[] a = registers[program.src1[i]];
+				for (int lane = 0; lane < lanes; lane++) {
+					dest[lane] = memo.compute(program.aluOp[i], a[lane]);
+				}
+			} else if (program.aluSrc[i] == 0) {
+				int[] a = registers[program.src1[i]];
+				int[] b = registers[program.src2[i]];
+				if (!vectorized || !VectorLanes.execute(program.aluOp[i], a, b, dest)) {
+					execute(program.aluOp[i], a, b, 0, dest);
+				}
+			} else {
+				execute(program.aluOp[i], registers[program.src1[i]], null, program.src2[i], dest);
+			}
+		}
+
+		if (outputs.isEmpty()) {
+			int[][] copy = new int[16][];
+			for (int reg = 0; reg < 16; reg++) {
+				copy[reg] = registers[reg].clone();
+			}
+			return copy;
+		}
+		return outputs.toArray(new int[0][]);
+	}
+
+	// Runs one ALU operation over every lane. b is null when the second input is the immediate instead of a register.
+	// dest can be the same array as a or b since each lane only ever reads and writes its own index
+	static void execute(int aluOp, int[] a, int[] b, int immediate, int[] dest) {
+		int lanes = dest.length;
+		switch (aluOp) {
+			case 0:
+				System.arraycopy(a, 0, dest, 0, lanes);
+				return;
+			case 1:
+				for (int i = 0; i < lanes; i++) {
+					dest[i] = Processor.ArithmeticLogicUnit.addition(a[i], b[i]);
+				}
+				return;
+			case 2:
+				for (int i = 0; i < lanes; i++) {
+					dest[i] = Processor.ArithmeticLogicUnit.subtraction(a[i], b[i]);
+				}
+				return;
+			case 4:
+				for (int i = 0; i < lanes; i++) {
+					dest[i] = Processor.ArithmeticLogicUnit.multiplication(a[i], b[i]);
+				}
+				return;
+			case 5:
+				for (int i = 0; i < lanes; i++) {
+					dest[i] = Processor.ArithmeticLogicUnit.division(a[i], b[i]);
+				}
+				return;
+		}
+
+		// Everything else is uncommon enough to just go through the ALU's own dispatch
+		for (int i = 0; i < lanes; i++) {
+			dest[i] = Processor.ArithmeticLogicUnit.compute(aluOp, a[i], b == null ? immediate : b[i]);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// The memory that Load and Store go to: an array of 32 bit floats, usually a float file mapped straight into memory
+// (big endian floats back to back, the same as StreamingKernel uses). Nothing is ever copied onto the heap, a Load
+// reads the mapping and a Store writes the file through it.
+//
+// An address is an element index, the whole part of the base register's value plus the instruction's offset. Floats
+// hold every whole number up to 2^24, so that's as far as a computed index reaches one element at a time. A bigger
+// file still maps fine (a gigabyte per mapping, since one buffer can't be bigger than 2GB), and the rest of it is
+// reached from bases that are round numbers plus offsets. Anything outside the segment is a RuntimeException.
+//
+// Mappings go away when they're garbage collected, close() just makes sure the Stores have got to the file
+class DataSegment implements AutoCloseable {
+
+	private static final int CHUNK_SHIFT = 28; // 2^28 floats is a gigabyte per mapping
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final ByteBuffer[] chunks;
+	private final long length;
+	private final FileChannel channel; // Null if it isn't a file
+	private final Map<Long, Integer> overlay; // Stores that don't go to the chunks, null for a normal segment
+
+	private DataSegment(ByteBuffer[] chunks, long length, FileChannel channel, Map<Long, Integer> overlay) {
+		this.chunks = chunks;
+		this.length = length;
+		this.channel = channel;
+		this.overlay = overlay;
+	}
+
+	// Maps the whole file. Stores need writable, otherwise they fail
+	static DataSegment map(Path file, boolean writable) throws IOException {
+		FileChannel channel = writable ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+			: FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long bytes = channel.size();
+			if (bytes % 4 != 0) {
+				throw new RuntimeException(file + " is " + bytes + " bytes, not a whole number of floats");
+			}
+			long length = bytes / 4;
+			ByteBuffer[] chunks = new ByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+			for (int c = 0; c < chunks.length; c++) {
+				long from = (long) c << CHUNK_SHIFT;
+				long count = Math.min(length - from, 1L << CHUNK_SHIFT);
+				chunks[c] = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, from * 4, count * 4);
+			}
+			return new DataSegment(chunks, length, channel, null);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// Off heap, but not backed by a file. Starts as all zeros. Split into gigabyte buffers like a mapped file, since one
+	// buffer can't hold more than 2^29 floats
+	static DataSegment allocate(long elements) {
+		if (elements < 0) {
+			throw new RuntimeException("Can't allocate a data segment of " + elements + " elements");
+		}
+		ByteBuffer[] chunks = new ByteBuffer[(int) ((elements + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		for (int c = 0; c < chunks.length; c++) {
+			long count = Math.min(elements - ((long) c << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+			chunks[c] = ByteBuffer.allocateDirect((int) count * 4);
+		}
+		return new DataSegment(chunks, elements, null, null);
+	}
+
+	// A view that reads this segment, but keeps its own Stores to itself. For running a program a second time (the
+	// checked engine, the pipeline estimate) without the first run's Stores getting in the way or being done twice
+	DataSegment overlay() {
+		return new DataSegment(chunks, length, null, new HashMap<>(overlay == null ? Map.of() : overlay));
+	}
+
+	long length() {
+		return length;
+	}
+
+	int load(int base, int offset) {
+		long index = index(base, offset, "Load from");
+		if (overlay != null) {
+			Integer stored = overlay.get(index);
+			if (stored != null) {
+				return stored;
+			}
+		}
+		return chunks[(int) (index >>> CHUNK_SHIFT)].getInt((int) (index & CHUNK_MASK) << 2);
+	}
+
+	void store(int base, int offset, int value) {
+		long index = index(base, offset, "Store to");
+		if (overlay != null) {
+			overlay.put(index, value);
+			return;
+		}
+		try {
+			chunks[(int) (index >>> CHUNK_SHIFT)].putInt((int) (index & CHUNK_MASK) << 2, value);
+		} catch (ReadOnlyBufferException e) {
+			throw new RuntimeException("Store to element " + index + ", but the data segment is read only");
+		}
+	}
+
+	// Element index for an access, checked against the end of the segment
+	private long index(int base, int offset, String access) {
+		float value = Float.intBitsToFloat(base);
+		long index = (long) value + offset;
+		if (index < 0 || index >= length || value != value) {
+			throw new RuntimeException(access + " element " + (value != value ? "NaN" : Long.toString(index)) + " + " + offset
+				+ ", outside the data segment of " + length + " elements");
+		}
+		return index;
+	}
+
+	// For looking at the segment from Java, past the 2^24 a base register can get to
+	float get(long index) {
+		if (index < 0 || index >= length) {
+			throw new RuntimeException("Element " + index + " is outside the data segment of " + length + " elements");
+		}
+		if (overlay != null && overlay.containsKey(index)) {
+			return Float.intBitsToFloat(overlay.get(index));
+		}
+		return chunks[(int) (index >>> CHUNK_SHIFT)].getFloat((int) (index & CHUNK_MASK) << 2);
+	}
+
+	void set(long index, float value) {
+		if (index < 0 || index >= length) {
+			throw new RuntimeException("Element " + index + " is outside the data segment of " + length + " elements");
+		}
+		if (overlay != null) {
+			overlay.put(index, Float.floatToRawIntBits(value));
+		} else {
+			chunks[(int) (index >>> CHUNK_SHIFT)].putFloat((int) (index & CHUNK_MASK) << 2, value);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			for (ByteBuffer chunk : chunks) {
+				if (chunk instanceof MappedByteBuffer && !chunk.isReadOnly()) {
+					((MappedByteBuffer) chunk).force();
+				}
+			}
+			channel.close();
+		}
+	}
+}
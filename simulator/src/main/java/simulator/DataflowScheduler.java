@@ -0,0 +1,214 @@
+package simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Runs one long program across several cores by splitting it into the parts that don't depend on each other.
+//
+// Every instruction is joined to the instructions that wrote the registers it reads, which splits the program into
+// independent chains (connected parts of the def-use graph). Each chain runs in program order on a private copy of
+// the starting registers. Because a chain holds every writer its reads depend on, it sees exactly the values the
+// sequential run would, and reuse of a register by another chain can't get in the way (that's only a WAR or WAW
+// dependency, which the private copies rename away). At the end each register is taken from the chain of its last
+// writer, and every Get puts its value in the slot for its position in the program, so the results are identical to
+// Processor.start() no matter how the chains got scheduled.
+//
+// Chains are run on a fork/join pool, splitting the list of chains in half until a piece is small enough to run on
+// one thread. Programs under the threshold, or where one chain is most of the program, just run on one thread, and so
+// do programs with branches (on a TracingEngine), since the chains assume every instruction runs once
+class DataflowScheduler implements ProgramCompiler.Kernel {
+
+	// Instructions. Below this, forking costs more than it saves. Change it with -Dsimulator.dataflowThreshold=<n>
+	static final int DEFAULT_THRESHOLD = Integer.getInteger("simulator.dataflowThreshold", 100_000);
+	private static final double MAX_LARGEST_CHAIN = 0.9; // Parallel runs can't beat the longest chain, so don't bother
+	private static final int TASKS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final ProgramCompiler.Kernel sequential; // Null when running in parallel
+	private final ThreadedEngine.Handler[][] chains; // The handlers of each chain, in program order
+	private final int[] chainLengths;
+	private final int[] lastWriter; // The chain that holds the final value of each register, -1 if it's never written
+	private final boolean[] keepsRegisters; // Whether a chain is the last writer of anything, so its registers are needed
+	private final int outputCount;
+	private final int largestChain;
+	private final int grain; // Instructions per fork/join task
+
+	DataflowScheduler(Processor.DecodedProgram program) {
+		this(program, DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+	}
+
+	DataflowScheduler(Processor.DecodedProgram program, int threshold, ForkJoinPool pool) {
+		this.pool = pool;
+		int length = program.length;
+
+		// Union-find over the instructions, joining each one to the last writer of every register it reads
+		int[] parent = new int[length];
+		int[] writer = new int[16];
+		Arrays.fill(writer, -1);
+		int outputs = 0;
+		for (int i = 0; i < length; i++) {
+			parent[i] = i;
+			if (program.readsSrc1(i) && writer[program.src1[i]] != -1) {
+				union(parent, i, writer[program.src1[i]]);
+			}
+			if (program.readsSrc2(i) && writer[program.src2[i]] != -1) {
+				union(parent, i, writer[program.src2[i]]);
+			}
+			if (program.readsSrc3(i) && writer[program.src3[i]] != -1) {
+				union(parent, i, writer[program.src3[i]]);
+			}
+			if (program.readsDest(i) && writer[program.dest[i]] != -1) {
+				union(parent, i, writer[program.dest[i]]);
+			}
+			if (program.writesDest(i)) {
+				writer[program.dest[i]] = i;
+			}
+			if (program.opcode[i] == 1) {
+				outputs++;
+			}
+		}
+		outputCount = outputs;
+
+		// Number the chains in order of their first instruction, so the layout never depends on anything but the program
+		int[] chainOf = new int[length];
+		int[] rootChain = new int[length];
+		Arrays.fill(rootChain, -1);
+		int chainCount = 0;
+		for (int i = 0; i < length; i++) {
+			int root = find(parent, i);
+			if (rootChain[root] == -1) {
+				rootChain[root] = chainCount++;
+			}
+			chainOf[i] = rootChain[root];
+		}
+		chainLengths = new int[chainCount];
+		for (int i = 0; i < length; i++) {
+			chainLengths[chainOf[i]]++;
+		}
+		largestChain = length == 0 ? 0 : Arrays.stream(chainLengths).max().getAsInt();
+
+		lastWriter = new int[16];
+		keepsRegisters = new boolean[chainCount];
+		for (int reg = 0; reg < 16; reg++) {
+			lastWriter[reg] = writer[reg] == -1 ? -1 : chainOf[writer[reg]];
+			if (lastWriter[reg] != -1) {
+				keepsRegisters[lastWriter[reg]] = true;
+			}
+		}
+
+		if (program.hasBranches() || program.usesMemory()) { // Load and Store can depend on each other through memory, not just registers
+			sequential = new TracingEngine(program);
+			chains = null;
+			grain = 0;
+			return;
+		}
+		if (length < threshold || largestChain > MAX_LARGEST_CHAIN * length || pool.getParallelism() == 1) {
+			sequential = new ThreadedEngine(program);
+			chains = null;
+			grain = 0;
+			return;
+		}
+		sequential = null;
+		chains = new ThreadedEngine.Handler[chainCount][];
+		int[] filled = new int[chainCount];
+		for (int c = 0; c < chainCount; c++) {
+			chains[c] = new ThreadedEngine.Handler[chainLengths[c]];
+		}
+		int get = 0;
+		for (int i = 0; i < length; i++) {
+			int c = chainOf[i];
+			chains[c][filled[c]++] = program.opcode[i] == 1 ? ThreadedEngine.get(program.dest[i], get++)
+				: ThreadedEngine.compile(program, i);
+		}
+		grain = Math.max(largestChain, length / (pool.getParallelism() * TASKS_PER_THREAD));
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]]; // Path halving
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int a, int b) {
+		int rootA = find(parent, a), rootB = find(parent, b);
+		if (rootA != rootB) {
+			parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB); // Lower root wins, which keeps it deterministic
+		}
+	}
+
+	boolean parallel() {
+		return sequential == null;
+	}
+
+	int chainCount() {
+		return chainLengths.length;
+	}
+
+	int largestChain() {
+		return largestChain;
+	}
+
+	@Override
+	public int[] run(int[] registers) {
+		if (sequential != null) {
+			return sequential.run(registers);
+		}
+		int[] outputs = new int[outputCount];
+		int[][] files = new int[chains.length][]; // The private registers of the chains that are needed for the join
+		pool.invoke(new Task(this, registers, outputs, files, 0, chains.length));
+
+		// Join: every register comes from the chain that wrote it last
+		for (int reg = 0; reg < 16; reg++) {
+			if (lastWriter[reg] != -1) {
+				registers[reg] = files[lastWriter[reg]][reg];
+			}
+		}
+		return outputs;
+	}
+
+	// Runs chains [from, to), splitting in half while there's more than a grain of instructions to do
+	private static final class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final DataflowScheduler scheduler;
+		private final int[] start, outputs;
+		private final int[][] files;
+		private final int from, to;
+
+		Task(DataflowScheduler scheduler, int[] start, int[] outputs, int[][] files, int from, int to) {
+			this.scheduler = scheduler;
+			this.start = start;
+			this.outputs = outputs;
+			this.files = files;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			int instructions = 0;
+			for (int c = from; c < to && instructions <= scheduler.grain; c++) {
+				instructions += scheduler.chainLengths[c];
+			}
+			if (instructions > scheduler.grain && to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Task(scheduler, start, outputs, files, from, middle),
+					new Task(scheduler, start, outputs, files, middle, to));
+				return;
+			}
+			int[] registers = new int[16];
+			for (int c = from; c < to; c++) {
+				System.arraycopy(start, 0, registers, 0, 16);
+				for (ThreadedEngine.Handler handler : scheduler.chains[c]) {
+					handler.run(registers, outputs);
+				}
+				if (scheduler.keepsRegisters[c]) {
+					files[c] = registers.clone();
+				}
+			}
+		}
+	}
+}
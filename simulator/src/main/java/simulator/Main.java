@@ -0,0 +1,126 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class Main {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 3 && args[0].equals("assemble")) {
+			Program program = load(args[1]);
+			ProgramImage.write(program, Paths.get(args[2]));
+			System.out.println("Wrote " + program.length() + " instructions to " + args[2]);
+			return;
+		}
+		if (args.length < 1 || args.length > 3) {
+			System.out.println("The first argument should be the program to load, optionally followed by the engine (decoded, threaded, compiled, checked, dataflow or structural)");
+			System.out.println("and the trace level (off, results, instructions or datapath).");
+			System.out.println("Or use: assemble <source> <image> to write a program image that loads without being assembled again.");
+			return;
+		}
+		Processor.Engine engine = args.length >= 2 ? Processor.Engine.valueOf(args[1].toUpperCase()) : Processor.Engine.DECODED;
+		Tracer.Level traceLevel = args.length == 3 ? Tracer.Level.valueOf(args[2].toUpperCase()) : Tracer.Level.OFF;
+
+		String path = Files.exists(Paths.get(args[0])) ? args[0] : "Program" + args[0] + ".txt"; // A file, or just its number
+		Program program = load(path);
+		ProgramOptimizer.Result optimized = null;
+		boolean fuse = Boolean.getBoolean("simulator.fuse"); // -Dsimulator.fuse=true also fuses Fmul/Fadd pairs into Fma
+		if (Boolean.getBoolean("simulator.optimize") || fuse) { // -Dsimulator.optimize=true
+			optimized = ProgramOptimizer.optimize(program, fuse);
+			program = optimized.program;
+		}
+		Processor processor = new Processor(program, engine);
+		ProcessorStats stats = Boolean.getBoolean("simulator.stats") ? new ProcessorStats() : null; // -Dsimulator.stats=true
+		processor.setStats(stats);
+		MemoCache memo = null;
+		int memoEntries = Integer.getInteger("simulator.memo", 0); // -Dsimulator.memo=<entries>
+		if (memoEntries > 0 && !Processor.usesMemo(engine)) {
+			System.err.println("Ignoring -Dsimulator.memo, the " + engine.name().toLowerCase() + " engine doesn't use a memo cache (only decoded and structural do)");
+		} else if (memoEntries > 0) {
+			memo = new MemoCache(memoEntries);
+		}
+		processor.setMemo(memo);
+
+		// -Dsimulator.data=<float file> maps the file as the data segment for Load and Store, which write straight back to it
+		String data = System.getProperty("simulator.data");
+		DataSegment memory = data == null ? null : DataSegment.map(Paths.get(data), true);
+		processor.setMemory(memory);
+
+		// -Dsimulator.pipeline=forwarding (or no-forwarding) estimates the timing on a 5 stage pipeline, and
+		// -Dsimulator.latencies=Fdiv:12,Sin:30 changes how long EX takes for each opcode. Worked out before the run, so
+		// it sees the data segment the program started with
+		String pipeline = System.getProperty("simulator.pipeline");
+		PipelineModel.Report timing = null;
+		if (pipeline != null) {
+			PipelineModel model = new PipelineModel(!pipeline.equals("no-forwarding"));
+			if (System.getProperty("simulator.latencies") != null) {
+				model.setLatencies(System.getProperty("simulator.latencies"));
+			}
+			Processor.DecodedProgram decoded = Processor.DecodedProgram.decode(program);
+			timing = decoded.hasBranches() ? model.analyze(decoded, new int[16], memory) : model.analyze(decoded);
+		}
+
+		int[] results;
+		// Off leaves the processor on Tracer.OFF, so there's no buffer or drainer thread at all. A null resource is skipped
+		try (Tracer.Buffered tracer = traceLevel == Tracer.Level.OFF ? null
+				: new Tracer.Buffered(traceLevel, new OutputStreamWriter(System.out), 4096)) {
+			if (tracer != null) {
+				processor.setTracer(tracer);
+			}
+			results = processor.start();
+		} finally {
+			if (memory != null) {
+				memory.close();
+			}
+		}
+		if (processor.getsRun() == 0) {
+			System.out.println("No Get instructions ran. Outputting all register values");
+		}
+		System.out.println("----Results----");
+		for (int result : results) {
+			System.out.println(Float.intBitsToFloat(result));
+		}
+		if (optimized != null) {
+			System.out.println("----Optimizer----");
+			optimized.print(System.out);
+		}
+		if (stats != null) {
+			System.out.println("----Stats----");
+			System.out.print(stats.report());
+		}
+		if (memo != null) {
+			System.out.println("----Memo----");
+			System.out.print(memo.report());
+		}
+		if (timing != null) {
+			System.out.println("----Pipeline----");
+			timing.print(System.out, false);
+		}
+
+	}
+
+	// Either a program image or assembly source
+	static Program load(String path) throws IOException {
+		Path file = Paths.get(path);
+		if (ProgramImage.isImage(file)) {
+			return ProgramImage.load(file);
+		}
+		try (Reader in = Files.newBufferedReader(file)) {
+			return Assembler.assemble(in);
+		}
+	}
+
+	static String rightPad(String str, int length) {
+		StringBuilder strBuilder = new StringBuilder(str);
+		while (strBuilder.length() < length) {
+			strBuilder.append(" ");
+		}
+		str = strBuilder.toString();
+		return str;
+	}
+
+}
@@ -0,0 +1,182 @@
+package simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Remembers the results of the slow one-input ALU operations (Sin, Cos, Tan, Exp, Log and Sqrt), keyed on the input's
+// bits. Programs tend to take these of the same few values over and over, since angles and constants come from Set
+// immediates, and each of them is a pure function of its input, so a remembered result is exactly what the ALU would
+// have worked out. Attach one with Processor.setMemo or BatchProcessor.setMemo, without one nothing changes.
+//
+// Each operation has its own table of ints, open addressed: an input hashes to a set of 8 slots (one cache line) and
+// can only be in that set. When the set is full the clock algorithm picks what goes. Every slot has a referenced bit
+// that a hit sets, and the set's own hand sweeps it clearing bits until it finds a slot that hasn't been used since
+// it last went past.
+//
+// Any number of threads can read and fill it without locking. A slot is the input and its result packed into one
+// long, so a reader sees a whole entry or none of it. Two threads filling or replacing slots at once can cost a miss
+// or a duplicate entry, but never a wrong result. NaN inputs aren't kept, which frees up -1 to mean an empty slot.
+//
+// The hit and miss counts are there to size it by: if the hit rate goes up when it's made bigger, it's too small
+class MemoCache {
+
+	static final int FIRST = 14, LAST = 19; // The aluOps it remembers, Sin to Sqrt
+	private static final int SET_SIZE = 8;
+	private static final long EMPTY = -1L;
+
+	private final Table[] tables = new Table[LAST - FIRST + 1];
+	private final int capacity;
+
+	private static final class Table {
+		final AtomicLongArray slots;
+		final byte[] referenced; // Only ever a hint, so races on it don't matter
+		final byte[] hands; // Where each set's clock stopped last time. Same
+		final int setMask;
+		final LongAdder hits = new LongAdder();
+		final LongAdder misses = new LongAdder();
+		final LongAdder evictions = new LongAdder();
+
+		Table(int capacity) {
+			slots = new AtomicLongArray(capacity);
+			referenced = new byte[capacity];
+			hands = new byte[capacity / SET_SIZE];
+			setMask = capacity / SET_SIZE - 1;
+			clear();
+		}
+
+		void clear() {
+			for (int i = 0; i < slots.length(); i++) {
+				slots.set(i, EMPTY);
+			}
+		}
+	}
+
+	// Entries for each operation, rounded up to a power of two and at least one set
+	MemoCache(int entries) {
+		capacity = Math.max(SET_SIZE, Integer.highestOneBit(Math.max(1, entries - 1)) << 1);
+		for (int i = 0; i < tables.length; i++) {
+			tables[i] = new Table(capacity);
+		}
+	}
+
+	static boolean memoizes(int aluOp) {
+		return aluOp >= FIRST && aluOp <= LAST;
+	}
+
+	// The same as ArithmeticLogicUnit.compute(aluOp, a, b) for any aluOp that memoizes. The second input is ignored
+	int compute(int aluOp, int a) {
+		if ((a & 0x7FFFFFFF) > 0x7F800000) {
+			return Processor.ArithmeticLogicUnit.compute(aluOp, a, 0);
+		}
+		Table table = tables[aluOp - FIRST];
+		int first = set(table, a);
+		for (int slot = first; slot < first + SET_SIZE; slot++) {
+			long entry = table.slots.get(slot);
+			if (entry == EMPTY) {
+				break; // Slots only empty again on clear(), so nothing is past here
+			}
+			if ((int) (entry >>> 32) == a) {
+				if (table.referenced[slot] == 0) {
+					table.referenced[slot] = 1;
+				}
+				table.hits.increment();
+				return (int) entry;
+			}
+		}
+
+		table.misses.increment();
+		int result = Processor.ArithmeticLogicUnit.compute(aluOp, a, 0);
+		table.slots.lazySet(victim(table, first), (long) a << 32 | (result & 0xFFFFFFFFL));
+		return result;
+	}
+
+	// An empty slot if the set has one, otherwise the first one the clock finds unreferenced. Gives up after two
+	// sweeps (which only happens if other threads keep setting the bits) and takes wherever the hand is
+	private static int victim(Table table, int first) {
+		for (int slot = first; slot < first + SET_SIZE; slot++) {
+			if (table.slots.get(slot) == EMPTY) {
+				table.referenced[slot] = 0;
+				return slot;
+			}
+		}
+		table.evictions.increment();
+		int set = first / SET_SIZE;
+		int hand = table.hands[set];
+		for (int step = 0; step < 2 * SET_SIZE; step++) {
+			int slot = first + (hand + step & SET_SIZE - 1);
+			if (table.referenced[slot] == 0) {
+				table.hands[set] = (byte) (hand + step + 1 & SET_SIZE - 1);
+				return slot;
+			}
+			table.referenced[slot] = 0;
+		}
+		table.hands[set] = (byte) (hand + 1 & SET_SIZE - 1);
+		return first + (hand & SET_SIZE - 1);
+	}
+
+	// First slot of the set the input belongs in. The multiply spreads inputs that only differ in their low bits,
+	// which most floats from the same program do
+	private static int set(Table table, int a) {
+		int h = a * 0x9E3779B9;
+		return ((h ^ h >>> 16) & table.setMask) * SET_SIZE;
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	long hits(int aluOp) {
+		return tables[aluOp - FIRST].hits.sum();
+	}
+
+	long misses(int aluOp) {
+		return tables[aluOp - FIRST].misses.sum();
+	}
+
+	// Misses that had to push out an entry to make room for the new one
+	long evictions(int aluOp) {
+		return tables[aluOp - FIRST].evictions.sum();
+	}
+
+	double hitRate(int aluOp) {
+		long hits = hits(aluOp), lookups = hits + misses(aluOp);
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	// Empties every table and zeroes the counts. Not while anything is using it
+	void clear() {
+		for (Table table : tables) {
+			table.clear();
+			Arrays.fill(table.referenced, (byte) 0);
+			Arrays.fill(table.hands, (byte) 0);
+			table.hits.reset();
+			table.misses.reset();
+			table.evictions.reset();
+		}
+	}
+
+	String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d entries per operation%n", capacity));
+		report.append(String.format("%-8s %12s %12s %12s %9s%n", "opcode", "hits", "misses", "evictions", "hit rate"));
+		for (int aluOp = FIRST; aluOp <= LAST; aluOp++) {
+			if (hits(aluOp) + misses(aluOp) == 0) {
+				continue;
+			}
+			report.append(String.format("%-8s %12d %12d %12d %8.1f%%%n", Assembler.INSTRUCTION_NAMES[aluOp + 2], hits(aluOp),
+				misses(aluOp), evictions(aluOp), 100 * hitRate(aluOp)));
+		}
+		return report.toString();
+	}
+
+	@Override
+	public String toString() {
+		long hits = 0, misses = 0;
+		for (int aluOp = FIRST; aluOp <= LAST; aluOp++) {
+			hits += hits(aluOp);
+			misses += misses(aluOp);
+		}
+		return "MemoCache[" + capacity + " entries per operation, " + hits + " hits, " + misses + " misses]";
+	}
+}
@@ -0,0 +1,125 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs many programs, or one program over many different starting registers, across all the cores. Programs and
+// kernels are immutable and every run gets its own registers, so nothing is shared between threads except the
+// (read only) program itself
+class ParallelRunner implements AutoCloseable {
+
+	private static final int TASKS_PER_THREAD = 4; // Splitting a bit finer than one task per thread evens out the load
+
+	private final int threads;
+	private final ExecutorService pool;
+
+	ParallelRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	ParallelRunner(int threads) {
+		this.threads = threads;
+		pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "processor-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Each program runs on its own Processor. The results are in the same order as the programs
+	List<int[]> runPrograms(List<Program> programs, Processor.Engine engine) {
+		List<Callable<int[]>> tasks = new ArrayList<>();
+		for (Program program : programs) {
+			tasks.add(() -> new Processor(program, engine).start());
+		}
+		return invokeAll(tasks);
+	}
+
+	// Runs the program once for each set of 16 starting registers, with every thread sharing one threaded or compiled
+	// kernel. The inputs aren't modified. Returns the Get results of each run, or its final registers if there weren't any
+	int[][] runInputs(Program program, Processor.Engine engine, int[][] inputs) {
+		ProgramCompiler.Kernel kernel = Processor.kernel(Processor.DecodedProgram.decode(program), engine);
+		int[][] results = new int[inputs.length][];
+
+		int chunk = Math.max(1, (inputs.length + threads * TASKS_PER_THREAD - 1) / (threads * TASKS_PER_THREAD));
+		List<Callable<int[]>> tasks = new ArrayList<>();
+		for (int from = 0; from < inputs.length; from += chunk) {
+			int start = from;
+			int end = Math.min(inputs.length, from + chunk);
+			tasks.add(() -> {
+				for (int i = start; i < end; i++) {
+					int[] registers = inputs[i].clone();
+					int[] outputs = kernel.run(registers);
+					results[i] = outputs.length == 0 ? registers : outputs;
+				}
+				return null;
+			});
+		}
+		invokeAll(tasks);
+		return results;
+	}
+
+	private List<int[]> invokeAll(List<Callable<int[]>> tasks) {
+		try {
+			List<int[]> results = new ArrayList<>();
+			for (Future<int[]> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while running programs", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Program failed", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	// Throughput benchmark: runs a program over random inputs with more and more threads to see how well it scales
+	// Usage: ParallelRunner <program number> [runs] [engine]
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: ParallelRunner <program number> [runs] [engine]");
+			return;
+		}
+		Program program = Main.load("Program" + args[0] + ".txt");
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		Processor.Engine engine = args.length > 2 ? Processor.Engine.valueOf(args[2].toUpperCase()) : Processor.Engine.THREADED;
+
+		Random random = new Random(1);
+		int[][] inputs = new int[runs][16];
+		for (int[] registers : inputs) {
+			for (int reg = 0; reg < 16; reg++) {
+				registers[reg] = Float.floatToIntBits(random.nextFloat() * 100);
+			}
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		double baseline = 0;
+		for (int threads = 1; threads <= cores; threads = threads * 2 > cores && threads != cores ? cores : threads * 2) {
+			try (ParallelRunner runner = new ParallelRunner(threads)) {
+				runner.runInputs(program, engine, inputs); // Warm up
+
+				long start = System.nanoTime();
+				runner.runInputs(program, engine, inputs);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				double throughput = runs / seconds;
+				if (threads == 1) {
+					baseline = throughput;
+				}
+				System.out.printf("%3d threads: %,14.0f runs/s  %5.2fx%n", threads, throughput, throughput / baseline);
+			}
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package simulator;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Timing estimate for running a program on a classic 5 stage pipeline (IF, ID, EX, MEM, WB) instead of the single
+// cycle datapath the Processor models. Only the timing is modelled, the values still come from Processor.start().
+//
+// One instruction is fetched per cycle and they go through in order. EX takes a configurable number of cycles per
+// opcode and isn't pipelined itself, so a long operation holds up everything behind it (a structural stall). An
+// instruction also waits in ID until the registers it reads are ready (a RAW stall): with forwarding a result can be
+// used the cycle after it leaves EX, without it the result has to go through WB first, which costs two more cycles.
+// Register writes always happen in order, so there are no WAR or WAW hazards to worry about. Load is the exception to
+// forwarding straight out of EX, what it reads only turns up at the end of MEM, so an instruction right behind it that
+// uses it waits one more cycle (the load-use stall).
+//
+// Branches are resolved at the end of EX and fetch always carries on with the next instruction, so a branch that's
+// taken throws away what was fetched behind it and the target starts from IF (a control stall). Programs with
+// branches are analyzed in the order their instructions really run, so a loop counts once for every trip. If those
+// branches depend on what's loaded, the data segment has to be given too (its Stores go to an overlay, the file isn't
+// changed).
+//
+// Usage: configure the latencies, then either analyze a whole program or issue() instructions one at a time in the
+// order they run and call report()
+class PipelineModel {
+
+	// EX cycles for each opcode. Roughly what a small FPU would take, change them with setLatency
+	private static final int[] DEFAULT_LATENCIES = new int[32];
+	static {
+		Arrays.fill(DEFAULT_LATENCIES, 1);
+		String[] names = {"Fadd", "Fsub", "Fmul", "Fdiv", "Floor", "Ceil", "Round", "Pow", "Sin", "Cos", "Tan", "Exp", "Log", "Sqrt", "Fpow", "Fma"};
+		int[] cycles = {4, 4, 5, 12, 2, 2, 2, 20, 30, 30, 40, 25, 25, 15, 40, 5};
+		for (int i = 0; i < names.length; i++) {
+			DEFAULT_LATENCIES[opcode(names[i])] = cycles[i];
+		}
+	}
+
+	private static final int FETCH_TO_EX = 2; // IF and ID before the first EX cycle
+	private static final int EX_TO_DONE = 2;  // MEM and WB after the last one
+	private static final int WRITE_BACK_DELAY = 2; // Extra wait for a result without forwarding: MEM, then WB
+	private static final int LOAD_DELAY = 1; // Extra wait for a Load's result with forwarding, it comes out of MEM
+
+	private final int[] latencies = DEFAULT_LATENCIES.clone();
+	private final boolean forwarding;
+
+	private Processor.DecodedProgram program;
+	private final long[] readyAt = new long[16]; // First cycle a reader of each register could start EX
+	private final int[] writtenBy = new int[16]; // Which instruction last wrote each register, -1 for none
+	private long lastExStart, exFreeAt;        // EX of the instruction before
+	private long redirectAt;                   // Earliest EX for the target of a taken branch just before, 0 if there wasn't one
+	private long issued;
+	private long dataStalls, structuralStalls, controlStalls;
+	private long[] dataStallsAt, structuralStallsAt, controlStallsAt; // Per instruction in the program, summed over every time it ran
+	private int[] waitedOn;                    // The instruction each one last had to wait for, -1 if none
+
+	PipelineModel(boolean forwarding) {
+		this.forwarding = forwarding;
+	}
+
+	void setLatency(int opcode, int cycles) {
+		if (cycles < 1) {
+			throw new RuntimeException("EX needs at least one cycle, not " + cycles);
+		}
+		latencies[opcode] = cycles;
+	}
+
+	void setLatency(String mnemonic, int cycles) {
+		setLatency(opcode(mnemonic), cycles);
+	}
+
+	int latency(int opcode) {
+		return latencies[opcode];
+	}
+
+	// Takes a list like "Fdiv:12,Sin:30"
+	void setLatencies(String list) {
+		for (String item : list.split(",")) {
+			String[] parts = item.trim().split(":");
+			if (parts.length != 2) {
+				throw new RuntimeException("Expected <mnemonic>:<cycles>, not " + item);
+			}
+			setLatency(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+		}
+	}
+
+	private static int opcode(String mnemonic) {
+		int opcode = Arrays.asList(Assembler.INSTRUCTION_NAMES).indexOf(mnemonic);
+		if (opcode == -1) {
+			throw new RuntimeException("Unknown instruction: " + mnemonic);
+		}
+		return opcode;
+	}
+
+	// The whole program once, straight through, or in the order it runs from all zero registers if it has branches
+	Report analyze(Processor.DecodedProgram program) {
+		if (program.hasBranches()) {
+			return analyze(program, new int[16], null);
+		}
+		start(program);
+		for (int i = 0; i < program.length; i++) {
+			issue(i);
+		}
+		return report();
+	}
+
+	// Runs the program from the given registers (which aren't changed) to find out which way every branch goes. memory
+	// can be null if the program doesn't Load or Store
+	Report analyze(Processor.DecodedProgram program, int[] registers, DataSegment memory) {
+		if (program.usesMemory() && memory == null) {
+			throw new RuntimeException("The program uses Load or Store, its branches can't be followed without the data segment");
+		}
+		DataSegment view = memory == null ? null : memory.overlay();
+		start(program);
+		int[] r = registers.clone();
+		int pc = 0;
+		while (pc < program.length) {
+			boolean taken = false;
+			if (program.regWrite[pc] == 0 && program.target[pc] < 0) { // Store
+				view.store(r[program.src1[pc]], program.src2[pc], r[program.dest[pc]]);
+			} else if (program.regWrite[pc] == 0) {
+				taken = Processor.BranchUnit.taken(program.opcode[pc], r[program.src1[pc]], r[program.src2[pc]]);
+			} else if (program.opcode[pc] != 1) {
+				int wd;
+				if (program.regWriteSrc[pc] == 0) {
+					int b = program.aluSrc[pc] == 0 ? r[program.src2[pc]] : program.src2[pc];
+					wd = Processor.ArithmeticLogicUnit.compute(program.aluOp[pc], r[program.src1[pc]], b, r[program.src3[pc]]);
+				} else if (program.regWriteSrc[pc] == 1) {
+					wd = program.src2[pc];
+				} else if (program.regWriteSrc[pc] == 2) {
+					wd = Processor.BranchUnit.countDown(r[program.src1[pc]]);
+				} else {
+					wd = view.load(r[program.src1[pc]], program.src2[pc]);
+				}
+				r[program.dest[pc]] = wd;
+				taken = program.target[pc] >= 0 && Processor.BranchUnit.taken(program.opcode[pc], wd, 0);
+			}
+			issue(pc, taken);
+			pc = taken ? program.target[pc] : pc + 1;
+		}
+		return report();
+	}
+
+	void start(Processor.DecodedProgram program) {
+		this.program = program;
+		Arrays.fill(readyAt, 0);
+		Arrays.fill(writtenBy, -1);
+		lastExStart = FETCH_TO_EX - 1; // As if there had been an instruction just ahead of the first one
+		exFreeAt = FETCH_TO_EX;
+		redirectAt = 0;
+		issued = 0;
+		dataStalls = structuralStalls = controlStalls = 0;
+		dataStallsAt = new long[program.length];
+		structuralStallsAt = new long[program.length];
+		controlStallsAt = new long[program.length];
+		waitedOn = new int[program.length];
+		Arrays.fill(waitedOn, -1);
+	}
+
+	// The next instruction to run is instruction i of the program
+	void issue(int i) {
+		issue(i, false);
+	}
+
+	// taken is whether instruction i is a branch that goes to its target, so whatever comes next has to be fetched again
+	void issue(int i, boolean taken) {
+		Processor.DecodedProgram d = program;
+		long earliest = lastExStart + 1;           // One behind the instruction before, if nothing gets in the way
+		if (redirectAt > earliest) {
+			earliest = redirectAt;
+		}
+		long exFree = Math.max(earliest, exFreeAt); // Waiting for EX to finish with the instruction before
+
+		long operands = 0;
+		int producer = -1;
+		if (d.readsSrc1(i) && readyAt[d.src1[i]] > operands) {
+			operands = readyAt[d.src1[i]];
+			producer = writtenBy[d.src1[i]];
+		}
+		if (d.readsSrc2(i) && readyAt[d.src2[i]] > operands) {
+			operands = readyAt[d.src2[i]];
+			producer = writtenBy[d.src2[i]];
+		}
+		if (d.readsSrc3(i) && readyAt[d.src3[i]] > operands) {
+			operands = readyAt[d.src3[i]];
+			producer = writtenBy[d.src3[i]];
+		}
+		if (d.readsDest(i) && readyAt[d.dest[i]] > operands) {
+			operands = readyAt[d.dest[i]];
+			producer = writtenBy[d.dest[i]];
+		}
+
+		long exStart = Math.max(exFree, operands);
+		long structural = exFree - earliest;
+		long data = exStart - exFree;
+		structuralStalls += structural;
+		dataStalls += data;
+		structuralStallsAt[i] += structural;
+		dataStallsAt[i] += data;
+		if (data > 0) {
+			waitedOn[i] = producer;
+		}
+
+		long exEnd = exStart + latencies[d.opcode[i]]; // First cycle after EX
+		if (d.writesDest(i)) {
+			readyAt[d.dest[i]] = !forwarding ? exEnd + WRITE_BACK_DELAY : d.regWriteSrc[i] == 3 ? exEnd + LOAD_DELAY : exEnd;
+			writtenBy[d.dest[i]] = i;
+		}
+		lastExStart = exStart;
+		exFreeAt = exEnd;
+		issued++;
+
+		// The target is fetched once the branch leaves EX. Counted against the branch, since it's the one that caused it
+		redirectAt = 0;
+		if (taken) {
+			redirectAt = exEnd + FETCH_TO_EX;
+			long control = redirectAt - (exStart + 1);
+			controlStalls += control;
+			controlStallsAt[i] += control;
+		}
+	}
+
+	Report report() {
+		long cycles = issued == 0 ? 0 : exFreeAt + EX_TO_DONE;
+		return new Report(program, forwarding, issued, cycles, dataStalls, structuralStalls, controlStalls,
+			dataStallsAt.clone(), structuralStallsAt.clone(), controlStallsAt.clone(), waitedOn.clone());
+	}
+
+	static final class Report {
+		final boolean forwarding;
+		final long instructions;
+		final long cycles;
+		final long dataStalls;
+		final long structuralStalls;
+		final long controlStalls;
+		private final Processor.DecodedProgram program;
+		private final long[] dataStallsAt;
+		private final long[] structuralStallsAt;
+		private final long[] controlStallsAt;
+		private final int[] waitedOn;
+
+		private Report(Processor.DecodedProgram program, boolean forwarding, long instructions, long cycles, long dataStalls,
+		               long structuralStalls, long controlStalls, long[] dataStallsAt, long[] structuralStallsAt,
+		               long[] controlStallsAt, int[] waitedOn) {
+			this.program = program;
+			this.forwarding = forwarding;
+			this.instructions = instructions;
+			this.cycles = cycles;
+			this.dataStalls = dataStalls;
+			this.structuralStalls = structuralStalls;
+			this.controlStalls = controlStalls;
+			this.dataStallsAt = dataStallsAt;
+			this.structuralStallsAt = structuralStallsAt;
+			this.controlStallsAt = controlStallsAt;
+			this.waitedOn = waitedOn;
+		}
+
+		double cpi() {
+			return instructions == 0 ? 0 : (double) cycles / instructions;
+		}
+
+		long dataStalls(int i) {
+			return dataStallsAt[i];
+		}
+
+		long structuralStalls(int i) {
+			return structuralStallsAt[i];
+		}
+
+		// Cycles lost fetching again after instruction i branched
+		long controlStalls(int i) {
+			return controlStallsAt[i];
+		}
+
+		// The instruction whose result instruction i had to wait for, or -1 if it never waited for data
+		int waitedOn(int i) {
+			return waitedOn[i];
+		}
+
+		void print(PrintStream out, boolean everyInstruction) {
+			out.printf("%d instructions in %d cycles, CPI %.3f (%s forwarding)%n", instructions, cycles, cpi(),
+				forwarding ? "with" : "without");
+			out.printf("Stall cycles: %d RAW, %d structural (EX busy), %d control (taken branches)%n", dataStalls,
+				structuralStalls, controlStalls);
+			out.printf("%6s  %-6s %8s %11s %8s  %s%n", "#", "op", "RAW", "structural", "control", "waiting on");
+			for (int i = 0; i < program.length; i++) {
+				if (!everyInstruction && dataStallsAt[i] == 0 && structuralStallsAt[i] == 0 && controlStallsAt[i] == 0) {
+					continue;
+				}
+				String waiting = waitedOn[i] == -1 ? "" : "#" + waitedOn[i] + " " + Assembler.INSTRUCTION_NAMES[program.opcode[waitedOn[i]]];
+				out.printf("%6d  %-6s %8d %11d %8d  %s%n", i, Assembler.INSTRUCTION_NAMES[program.opcode[i]], dataStallsAt[i],
+					structuralStallsAt[i], controlStallsAt[i], waiting);
+			}
+		}
+	}
+}
@@ -0,0 +1,1328 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class Processor {
+	
+	private static final int LOOP = 27, STORE = 29, FMA = 30;
+	
+	private int count = 0; // For display purposes
+	private int gets = 0; // Gets that the last start() ran
+	private Tracer tracer = Tracer.OFF;
+	private ProcessorStats stats; // Null unless instrumentation is on
+	
+	private Program program;
+	private Engine engine;
+	private DecodedProgram decoded; // Only built for the engines that need them
+	private ProgramCompiler.Kernel kernel; // The threaded or compiled program
+	private DataSegment memory; // What Load and Store use, null if there isn't one
+	
+	private ControlUnit control = new ControlUnit();
+	private RegisterFile registerFile = new RegisterFile();
+	private ArithmeticLogicUnit alu = new ArithmeticLogicUnit();
+	
+	// Which execution loop start() uses
+	enum Engine {
+		STRUCTURAL, // Drives every instruction through the ControlUnit/RegisterFile/ALU datapath model. Slow, but good for teaching and debugging
+		DECODED,    // Decodes the program once up front and only reads the decoded arrays while executing
+		THREADED,   // Compiles the decoded program into a chain of handlers with their registers bound in. Doesn't print a trace
+		COMPILED,   // Compiles the program to JVM bytecode. Falls back to THREADED if the program can't be compiled
+		CHECKED,    // Same as COMPILED, but also runs the program through the decoded engine and fails if they disagree
+		DATAFLOW    // Runs independent chains of a long program in parallel on threaded handlers, see DataflowScheduler
+		// Programs with branches or Load/Store run on a TracingEngine for all of the last four. Only COMPILED and CHECKED compile its hot loops
+	}
+	
+	Processor(int[] instructions) {
+		this(Program.of(instructions), Engine.DECODED);
+	}
+	
+	Processor(Program program) {
+		this(program, Engine.DECODED);
+	}
+	
+	Processor(Program program, Engine engine) {
+		this.program = program;
+		this.engine = engine;
+		if (engine != Engine.STRUCTURAL) {
+			decoded = DecodedProgram.decode(program);
+		}
+		if (engine != Engine.STRUCTURAL && engine != Engine.DECODED) {
+			kernel = kernel(decoded, engine);
+		}
+	}
+
+	// For a program that has already been decoded and, if the engine needs it, compiled (see ProgramCache)
+	Processor(Program program, Engine engine, DecodedProgram decoded, ProgramCompiler.Kernel kernel) {
+		this.program = program;
+		this.engine = engine;
+		this.decoded = decoded;
+		this.kernel = kernel;
+	}
+
+	// Builds the threaded or compiled version of a program. Kernels don't keep any state of their own, so one can be
+	// shared between threads as long as each thread passes in its own registers
+	static ProgramCompiler.Kernel kernel(DecodedProgram decoded, Engine engine) {
+		if (decoded.hasBranches() || decoded.usesMemory()) {
+			return new TracingEngine(decoded, engine == Engine.COMPILED || engine == Engine.CHECKED);
+		}
+		if (engine == Engine.DATAFLOW) {
+			return new DataflowScheduler(decoded);
+		}
+		if (engine == Engine.COMPILED || engine == Engine.CHECKED) {
+			try {
+				return ProgramCompiler.compile(decoded);
+			} catch (RuntimeException e) {
+				System.err.println("Falling back to the threaded engine: " + e.getMessage());
+			}
+		}
+		return new ThreadedEngine(decoded);
+	}
+	
+	void setTracer(Tracer tracer) {
+		this.tracer = tracer;
+	}
+	
+	// For Load and Store. The processor doesn't close it
+	void setMemory(DataSegment memory) {
+		this.memory = memory;
+	}
+	
+	// Null turns instrumentation back off
+	void setStats(ProcessorStats stats) {
+		this.stats = stats;
+	}
+	
+	// Remembers Sin, Cos, Tan, Exp, Log and Sqrt results between instructions and runs, null turns it back off. Only the
+	// decoded and structural engines go through it, the others call the ALU routines directly, so they refuse one
+	void setMemo(MemoCache memo) {
+		if (memo != null && !usesMemo(engine)) {
+			throw new RuntimeException("The " + engine.name().toLowerCase() + " engine doesn't use a memo cache, only decoded and structural do");
+		}
+		alu.memo = memo;
+	}
+	
+	static boolean usesMemo(Engine engine) {
+		return engine == Engine.DECODED || engine == Engine.STRUCTURAL;
+	}
+	
+	// Starting values for the 16 registers, instead of all zeros
+	void setRegisters(int[] values) {
+		System.arraycopy(values, 0, registerFile.registers, 0, registerFile.registers.length);
+	}
+	
+	// The registers as they are now, so after start() the final values
+	int[] registers() {
+		return registerFile.registers.clone();
+	}
+	
+	// Will run until it exhausts all instructions. Returns the result of all Get statements or the contents of all the registers if there weren't any
+	int[] start() {
+		long started = stats == null ? 0 : System.nanoTime();
+		Engine running = engine;
+		if (stats != null && engine != Engine.STRUCTURAL && decoded.hasBranches()) {
+			running = Engine.DECODED; // How often each instruction runs depends on the branches, so they have to be counted as they go
+		}
+		int[] outputs;
+		switch (running) {
+			case CHECKED:  outputs = runChecked(); break;
+			case COMPILED:
+			case THREADED:
+			case DATAFLOW: outputs = runKernel(); break;
+			case DECODED:  outputs = stats == null ? runDecoded() : runDecodedInstrumented(); break;
+			default:       outputs = runStructural(); break;
+		}
+		
+		if (stats != null) {
+			if (kernel != null && !decoded.hasBranches()) { // Kernels can't be timed an instruction at a time, but every instruction runs once
+				long[] counts = new long[ProcessorStats.OPCODES];
+				for (int i = 0; i < decoded.length; i++) {
+					counts[decoded.opcode[i]]++;
+				}
+				for (int opcode = 0; opcode < counts.length; opcode++) {
+					if (counts[opcode] != 0) {
+						stats.recordCount(opcode, counts[opcode]);
+					}
+				}
+			}
+			stats.recordRun(System.nanoTime() - started);
+		}
+		tracer.flush();
+		gets = outputs.length;
+		return outputs.length == 0 ? registerFile.registers : outputs;
+	}
+	
+	// How many Gets the last start() ran. None means it gave back the registers instead, even if the program has Gets
+	// that a branch went around
+	int getsRun() {
+		return gets;
+	}
+	
+	// The kernels run the whole program in one go, so all they can trace is the results afterwards
+	private int[] runKernel() {
+		if (kernel instanceof TracingEngine) { // A Get can run any number of times, so it keeps track of where each result came from
+			TracingEngine.Outputs outputs = ((TracingEngine) kernel).execute(registerFile.registers, memory);
+			if (tracer.level() != Tracer.Level.OFF) {
+				for (int i = 0; i < outputs.size(); i++) {
+					tracer.result(outputs.register(i), outputs.value(i));
+				}
+			}
+			return outputs.values();
+		}
+		int[] outputs = kernel.run(registerFile.registers);
+		if (tracer.level() != Tracer.Level.OFF) {
+			int get = 0;
+			for (int i = 0; i < decoded.length; i++) {
+				if (decoded.opcode[i] == 1) {
+					tracer.result(decoded.dest[i], outputs[get++]);
+				}
+			}
+		}
+		return outputs;
+	}
+	
+	// The reference goes first, on an overlay of the memory, so that it sees what the program really started with and
+	// its Stores aren't done twice
+	private int[] runChecked() {
+		Processor reference = new Processor(program, Engine.DECODED);
+		reference.setRegisters(registerFile.registers);
+		reference.setMemory(memory == null ? null : memory.overlay());
+		int[] expected = reference.start();
+		int[] outputs = runKernel();
+		int[] actual = outputs.length == 0 ? registerFile.registers : outputs;
+		
+		if (actual.length != expected.length) {
+			throw new RuntimeException("Compiled program gave " + actual.length + " results, expected " + expected.length);
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (actual[i] != expected[i]) {
+				throw new RuntimeException("Compiled program result " + i + " was " + Integer.toHexString(actual[i]) +
+					", expected " + Integer.toHexString(expected[i]));
+			}
+		}
+		return outputs;
+	}
+	
+	// Only reads the decoded arrays, and calls the ALU routines directly rather than going through the ALU model
+	private int[] runDecoded() {
+		int[] outputs = new int[decoded.gets()];
+		int gets = 0;
+		int[] registers = registerFile.registers;
+		DecodedProgram d = decoded;
+		MemoCache memo = alu.memo;
+		boolean traceResults = tracer.level() != Tracer.Level.OFF;
+		boolean traceInstructions = tracer.level().compareTo(Tracer.Level.INSTRUCTIONS) >= 0;
+		
+		for (int i = 0; i < d.length; i++) {
+			int dest = d.dest[i];
+			if (d.opcode[i] == 1) { // Get
+				if (gets == outputs.length) { // Only once a branch has gone back over a Get
+					outputs = Arrays.copyOf(outputs, Math.max(16, gets * 2));
+				}
+				outputs[gets++] = registers[dest];
+				if (traceResults) {
+					tracer.result(dest, registers[dest]);
+				}
+				continue;
+			}
+			if (d.regWrite[i] == 0) { // Compare and branch or Store, there's nothing to write
+				if (d.target[i] < 0) {
+					memory().store(registers[d.src1[i]], d.src2[i], registers[dest]);
+				} else if (BranchUnit.taken(d.opcode[i], registers[d.src1[i]], registers[d.src2[i]])) {
+					i = d.target[i] - 1;
+				}
+				continue;
+			}
+			
+			int wd;
+			if (d.regWriteSrc[i] == 0) {
+				wd = compute(memo, d, i, registers);
+			} else if (d.regWriteSrc[i] == 1) {
+				wd = d.src2[i]; // Set immediates were already converted to single precision by the decoder
+			} else if (d.regWriteSrc[i] == 2) {
+				wd = BranchUnit.countDown(registers[d.src1[i]]); // Loop
+			} else {
+				wd = memory().load(registers[d.src1[i]], d.src2[i]);
+			}
+			
+			if (traceInstructions) {
+				tracer.instruction(++count, d.src1[i], range(program.instruction(i), 18, 15), dest, wd);
+			}
+			registers[dest] = wd;
+			if (d.target[i] >= 0 && BranchUnit.taken(d.opcode[i], wd, 0)) { // Loop, on the counter it just wrote
+				i = d.target[i] - 1;
+			}
+		}
+		return gets == outputs.length ? outputs : Arrays.copyOf(outputs, gets);
+	}
+	
+	// One ALU instruction of a decoded program, through the memo cache if there is one and the operation uses it
+	private static int compute(MemoCache memo, DecodedProgram d, int i, int[] registers) {
+		int aluOp = d.aluOp[i];
+		int a = registers[d.src1[i]];
+		if (memo != null && MemoCache.memoizes(aluOp)) {
+			return memo.compute(aluOp, a);
+		}
+		int b = d.aluSrc[i] == 0 ? registers[d.src2[i]] : d.src2[i];
+		return ArithmeticLogicUnit.compute(aluOp, a, b, registers[d.src3[i]]);
+	}
+	
+	// Same as runDecoded, but also times every instruction into the stats. A separate copy so that runDecoded doesn't
+	// have to check for stats on every instruction
+	private int[] runDecodedInstrumented() {
+		int[] outputs = new int[decoded.gets()];
+		int gets = 0;
+		int[] registers = registerFile.registers;
+		DecodedProgram d = decoded;
+		MemoCache memo = alu.memo;
+		ProcessorStats s = stats;
+		boolean traceResults = tracer.level() != Tracer.Level.OFF;
+		boolean traceInstructions = tracer.level().compareTo(Tracer.Level.INSTRUCTIONS) >= 0;
+		
+		long previous = System.nanoTime();
+		for (int i = 0; i < d.length; i++) {
+			int dest = d.dest[i];
+			int next = i + 1;
+			if (d.opcode[i] == 1) { // Get
+				if (gets == outputs.length) {
+					outputs = Arrays.copyOf(outputs, Math.max(16, gets * 2));
+				}
+				outputs[gets++] = registers[dest];
+				if (traceResults) {
+					tracer.result(dest, registers[dest]);
+				}
+			} else if (d.regWrite[i] == 0) { // Compare and branch or Store
+				if (d.target[i] < 0) {
+					memory().store(registers[d.src1[i]], d.src2[i], registers[dest]);
+				} else if (BranchUnit.taken(d.opcode[i], registers[d.src1[i]], registers[d.src2[i]])) {
+					next = d.target[i];
+				}
+			} else {
+				int wd;
+				if (d.regWriteSrc[i] == 0) {
+					wd = compute(memo, d, i, registers);
+				} else if (d.regWriteSrc[i] == 1) {
+					wd = d.src2[i];
+				} else if (d.regWriteSrc[i] == 2) {
+					wd = BranchUnit.countDown(registers[d.src1[i]]);
+				} else {
+					wd = memory().load(registers[d.src1[i]], d.src2[i]);
+				}
+				
+				if (traceInstructions) {
+					tracer.instruction(++count, d.src1[i], range(program.instruction(i), 18, 15), dest, wd);
+				}
+				registers[dest] = wd;
+				if (d.target[i] >= 0 && BranchUnit.taken(d.opcode[i], wd, 0)) {
+					next = d.target[i];
+				}
+			}
+			
+			long now = System.nanoTime(); // One clock read per instruction, each one ends the last one's time
+			s.record(d.opcode[i], now - previous);
+			previous = now;
+			i = next - 1;
+		}
+		return gets == outputs.length ? outputs : Arrays.copyOf(outputs, gets);
+	}
+	
+	private int[] runStructural() {
+		List<Integer> outputs = new ArrayList<>();
+		long started = stats == null ? 0 : System.nanoTime();
+		int previous = -1; // Opcode of the instruction that ran before this one
+		
+		int next;
+		for (int i = 0; i < program.length(); i = next) {
+			int instr = program.instruction(i);
+			next = i + 1;
+			if (stats != null && previous != -1) { // Timed from the start of one instruction to the start of the next
+				long now = System.nanoTime();
+				stats.record(previous, now - started);
+				started = now;
+			}
+			previous = range(instr, 31, 27);
+			if (range(instr, 31, 27) == 1) { // If the command is a Get, then just grab the value from the register, log it, and skip the instruction
+				outputs.add(registerFile.registers[range(instr, 26, 23)]);
+				if (tracer.level() != Tracer.Level.OFF) {
+					tracer.result(range(instr, 26, 23), registerFile.registers[range(instr, 26, 23)]);
+				}
+				continue;
+			}
+			
+			control.input(range(instr, 31, 27));
+			
+			// Set up register file inputs
+			registerFile.inputRegWrite(control.regWrite());
+			// Mux, Loop counts down the register in the dest field
+			if (control.regWriteSrc() == 2) {
+				registerFile.inputRR1(range(instr, 26, 23));
+			} else {
+				registerFile.inputRR1(range(instr, 22, 19));
+			}
+			// Mux, Store reads the value to store from the register in the dest field
+			if (control.memWrite() != 0) {
+				registerFile.inputRR2(range(instr, 26, 23));
+			} else {
+				registerFile.inputRR2(range(instr, 18, 15));
+			}
+			registerFile.inputRR3(range(instr, 14, 11)); // Only Fma has a third source, everything else ignores it
+			registerFile.inputWR(range(instr, 26, 23));
+			
+			// Set up ALU inputs
+			alu.inputAluOp(control.aluOp());
+			alu.inputA(registerFile.outputRD1());
+			// Mux
+			int b;
+			if (control.aluSrc() == 0) {
+				b = registerFile.outputRD2();
+			} else {
+				b = range(instr, 18, 0);
+			}
+			alu.inputB(b);
+			alu.inputC(registerFile.outputRD3());
+			
+			// Mux
+			int wd;
+			if (control.regWriteSrc() == 0) {
+				wd = alu.process();
+			} else if (control.regWriteSrc() == 2) {
+				wd = BranchUnit.countDown(registerFile.outputRD1());
+			} else if (control.regWriteSrc() == 3) {
+				wd = memory().load(registerFile.outputRD1(), offset(instr));
+			} else {
+				if (program.hasWideImmediate(i)) { // Set wd to a good value if it went out of bounds
+					wd = program.wideImmediate(i);
+				} else {
+					wd = Float.floatToIntBits(customToSinglePrecision(range(instr, 22, 0)));
+				}
+			}
+			
+			registerFile.inputWD(wd);
+			if (tracer.level().compareTo(Tracer.Level.INSTRUCTIONS) >= 0 && control.regWrite() != 0) {
+				tracer.instruction(++count, registerFile.RR1, registerFile.RR2, registerFile.WR, wd);
+			}
+			
+			// Data memory, the address is the base register plus the offset
+			if (control.memWrite() != 0) {
+				memory().store(registerFile.outputRD1(), offset(instr), registerFile.outputRD2());
+			}
+			
+			// Branch unit. Compares the two registers read, or for Loop the counter that's about to be written
+			if (control.branch() != 0) {
+				int a = control.regWrite() != 0 ? wd : registerFile.outputRD1();
+				if (BranchUnit.taken(range(instr, 31, 27), a, registerFile.outputRD2())) {
+					next = branchTarget(instr);
+				}
+			}
+			registerFile.process(); // Update the register file for the new value
+		}
+		if (stats != null && previous != -1) {
+			stats.record(previous, System.nanoTime() - started);
+		}
+		return outputs.stream().mapToInt(i -> i).toArray();
+	}
+	
+	// Mask a range of bits and return them shifted to the right
+	// Range is inclusive on both ends
+	// Left is more significant, right is less (31-0)
+	private static int range(int bits, int left, int right) {
+		if (right > left) {
+			throw new RuntimeException("Bad range parameters: " + left + ", " + right);
+		}
+		
+		int mask = 0xFFFFFFFF;
+		mask >>>= 31 - (left - right);
+		mask <<= right;
+		return (bits & mask) >>> right;
+	}
+	
+	// Load and Store's offset, a signed 19 bit number of elements
+	private static int offset(int instr) {
+		return instr << 13 >> 13;
+	}
+	
+	private DataSegment memory() {
+		if (memory == null) {
+			throw new RuntimeException("The program uses Load or Store, but there's no data segment (see setMemory)");
+		}
+		return memory;
+	}
+	
+	// Where a branch goes, see Assembler.withTarget for the encoding
+	private static int branchTarget(int instr) {
+		if (range(instr, 31, 27) == LOOP) {
+			return range(instr, 18, 0);
+		}
+		return range(instr, 26, 23) << 15 | range(instr, 14, 0);
+	}
+	
+	// Expects a 23 bit custom precision number as stated in the first milestone document
+	private static float customToSinglePrecision(int bits) {
+		int sign = (bits & 0x400000) << 9;
+		int exp = ((((bits & 0x3E0000) >>> 17) + 112) << 23) & 0x7F800000;
+		int manti = (bits & 0x1FFFF) << 7;
+		
+		return Float.intBitsToFloat(sign | exp | manti);
+	}
+	
+	// The program split into one primitive array per field, with the control signals already worked out.
+	// Built once when the program is loaded so the execute loop never has to call range() or the ControlUnit
+	static class DecodedProgram {
+		final int length;
+		final int[] opcode;
+		final int[] dest;
+		final int[] src1;
+		final int[] src2; // Register number for R types, the unsigned immediate for I types, the final register value for Set and the signed offset for Load/Store
+		final int[] src3; // Fma's addend register, 0 for everything else
+		final int[] aluOp;
+		final int[] aluSrc;
+		final int[] regWrite;
+		final int[] regWriteSrc;
+		final int[] target; // Where a branch goes if it's taken, -1 for everything that isn't a branch
+		private int gets;
+		private boolean branches;
+		private boolean memory;
+		
+		private DecodedProgram(int length) {
+			this.length = length;
+			opcode = new int[length];
+			dest = new int[length];
+			src1 = new int[length];
+			src2 = new int[length];
+			src3 = new int[length];
+			aluOp = new int[length];
+			aluSrc = new int[length];
+			regWrite = new int[length];
+			regWriteSrc = new int[length];
+			target = new int[length];
+		}
+		
+		static DecodedProgram decode(Program program) {
+			DecodedProgram d = new DecodedProgram(program.length());
+			ControlUnit control = new ControlUnit();
+			
+			for (int i = 0; i < program.length(); i++) {
+				int instr = program.instruction(i);
+				int opcode = range(instr, 31, 27);
+				control.input(opcode);
+				
+				d.opcode[i] = opcode;
+				d.dest[i] = range(instr, 26, 23);
+				d.src1[i] = range(instr, 22, 19);
+				d.aluOp[i] = control.aluOp();
+				d.aluSrc[i] = control.aluSrc();
+				d.regWrite[i] = control.regWrite();
+				d.regWriteSrc[i] = control.regWriteSrc();
+				d.target[i] = -1;
+				if (opcode == 1) {
+					d.gets++;
+				}
+				if (opcode == FMA) {
+					d.src3[i] = range(instr, 14, 11);
+				}
+				
+				if (control.branch() != 0) {
+					d.target[i] = branchTarget(instr);
+					if (d.target[i] > program.length()) {
+						throw new RuntimeException("Instruction " + i + " branches to " + d.target[i] + ", past the end of the program");
+					}
+					d.branches = true;
+				}
+				if (control.memRead() != 0 || control.memWrite() != 0) { // Base register in src1, and for Store the value in dest
+					d.src2[i] = offset(instr);
+					d.memory = true;
+				} else if (control.regWriteSrc() == 2) { // Loop, the counter is both the source and the dest
+					d.src1[i] = d.dest[i];
+					d.src2[i] = 0;
+				} else if (control.branch() != 0) { // Compare and branch, the dest field is part of the target
+					d.dest[i] = 0;
+					d.src2[i] = range(instr, 18, 15);
+				} else if (d.aluSrc[i] == 0) {
+					d.src2[i] = range(instr, 18, 15);
+				} else if (d.regWriteSrc[i] == 0) {
+					d.src2[i] = range(instr, 18, 0);
+				} else if (program.hasWideImmediate(i)) { // Same out of bounds work around as the structural datapath
+					d.src2[i] = program.wideImmediate(i);
+				} else {
+					d.src2[i] = Float.floatToIntBits(customToSinglePrecision(range(instr, 22, 0)));
+				}
+			}
+			return d;
+		}
+		
+		// How many Gets there are, which is how many results there'll be unless a branch repeats or skips some
+		int gets() {
+			return gets;
+		}
+		
+		// Whether any instruction can change the order the rest run in. Without branches every instruction runs
+		// exactly once, in order, which the kernels and anything that analyzes the program can rely on
+		boolean hasBranches() {
+			return branches;
+		}
+		
+		// Whether there's a Load or Store, which needs a data segment and can't be run twice as if it were the same
+		// thing
+		boolean usesMemory() {
+			return memory;
+		}
+		
+		// Which registers an instruction really depends on and changes, for anything that needs to follow values
+		// through the program. Set only writes, Get only reads its dest, and the second source only counts if it's a
+		// register the operation actually uses
+		boolean readsSrc1(int i) {
+			return opcode[i] != 0 && opcode[i] != 1;
+		}
+		
+		boolean readsSrc2(int i) {
+			return opcode[i] != 0 && opcode[i] != 1 && aluSrc[i] == 0 && ArithmeticLogicUnit.usesB(aluOp[i]);
+		}
+		
+		boolean readsSrc3(int i) {
+			return opcode[i] == FMA;
+		}
+		
+		boolean readsDest(int i) {
+			return opcode[i] == 1 || opcode[i] == STORE;
+		}
+		
+		boolean writesDest(int i) {
+			return opcode[i] != 1 && regWrite[i] != 0;
+		}
+	}
+	
+	public static class ControlUnit {
+		
+		int opcode = 0;
+		
+		ControlUnit() {
+			
+		}
+		
+		void input(int opcode) {
+			this.opcode = opcode;
+		}
+		
+		int regWrite() {
+			return (opcode >= 23 && opcode <= 26) || opcode == 29 ? 0 : 1; // Compare and branch, Store
+		}
+		
+		int regWriteSrc() {
+			if (opcode == 27) { // Loop writes back its counter from the branch unit
+				return 2;
+			}
+			if (opcode == 28) { // Load writes back what it read from memory
+				return 3;
+			}
+			return opcode == 0 ? 1 : 0;
+		}
+		
+		int aluSrc() {
+			if (opcode == 0) {
+				return 1;
+			}
+			
+			if (opcode == 15 || opcode == 28 || opcode == 29) {
+				return 2;
+			}
+			
+			return 0;
+		}
+		
+		int aluOp() {
+			if (opcode >= 23 && opcode <= 26) { // Compares subtract
+				return 2;
+			}
+			if (opcode >= 27 && opcode <= 29) { // Loop, Load and Store pass the register through, the address is worked out by the memory
+				return 0;
+			}
+			if (opcode == 30) { // Fma
+				return 21;
+			}
+			return opcode == 1?0:opcode-2;
+		}
+		
+		int branch() {
+			return opcode >= 23 && opcode <= 27 ? 1 : 0;
+		}
+		
+		int memRead() {
+			return opcode == 28 ? 1 : 0;
+		}
+		
+		int memWrite() {
+			return opcode == 29 ? 1 : 0;
+		}
+	}
+	
+	// Decides whether a branch is taken. Compares are done as floats, so -0 equals 0 and nothing compares true
+	// against NaN except Bne. Loop goes back while the counter it just wrote is above zero.
+	//
+	// Loop's counter has its own decrement here instead of going through the ALU's Fsub, which isn't always exact
+	// (20 - 1 comes out as 18.999998). A whole number of trips has to come out as exactly that many
+	public static class BranchUnit {
+		
+		static int countDown(int counter) {
+			return Float.floatToRawIntBits(Float.intBitsToFloat(counter) - 1);
+		}
+		
+		static boolean taken(int opcode, int a, int b) {
+			float x = Float.intBitsToFloat(a);
+			float y = Float.intBitsToFloat(b);
+			switch (opcode) {
+				case 23: return x == y;  // Beq
+				case 24: return x != y;  // Bne
+				case 25: return x < y;   // Blt
+				case 26: return x >= y;  // Bge
+				case 27: return x > 0;   // Loop
+			}
+			throw new RuntimeException("Not a branch: " + opcode);
+		}
+	}
+	
+	public static class RegisterFile {
+		int[] registers;
+		
+		int RR1, RR2, RR3;
+		int WR, WD;
+		int regWrite;
+		
+		RegisterFile() {
+			registers = new int[16];
+		}
+		
+		void inputRR1(int RR1) {
+			this.RR1 = RR1;
+		}
+		
+		void inputRR2(int RR2) {
+			this.RR2 = RR2;
+		}
+		
+		void inputRR3(int RR3) {
+			this.RR3 = RR3;
+		}
+		
+		void inputWR(int WR) {
+			this.WR = WR;
+		}
+		
+		void inputWD(int WD) {
+			this.WD = WD;
+		}
+		
+		void inputRegWrite(int regWrite) {
+			this.regWrite = regWrite;
+		}
+		
+		int outputRD1() {
+			return registers[RR1];
+		}
+		
+		int outputRD2() {
+			return registers[RR2];
+		}
+		
+		int outputRD3() {
+			return registers[RR3];
+		}
+		
+		void process() {
+			if (regWrite == 0) {
+				return;
+			}
+			
+			registers[WR] = WD;
+		}
+	}
+	
+	public static class ArithmeticLogicUnit {
+		int aluOp;
+		int a, b, c;
+		MemoCache memo; // Null unless the slow unary operations are being remembered
+		
+		ArithmeticLogicUnit() {
+			
+		}
+		
+		void inputAluOp(int aluOp) {
+			this.aluOp = aluOp;
+		}
+		
+		void inputA(int a) {
+			this.a = a;
+		}
+		
+		void inputB(int b) {
+			this.b = b;
+		}
+		
+		void inputC(int c) {
+			this.c = c;
+		}
+		
+		int process() {
+			if (memo != null && MemoCache.memoizes(aluOp)) {
+				return memo.compute(aluOp, a);
+			}
+			return compute(aluOp, a, b, c);
+		}
+		
+		// Same as below, with the third input that only Fma uses
+		static int compute(int aluOp, int a, int b, int c) {
+			return aluOp == 21 ? fusedMultiplyAdd(a, b, c) : compute(aluOp, a, b);
+		}
+		
+		// The operations themselves are pure functions of the two inputs so that the other engines can call them directly
+		static int compute(int aluOp, int a, int b) {
+			switch (aluOp) {
+				case 0:  return a;
+				case 1:  return addition(a, b);
+				case 2:  return subtraction(a, b);
+				case 3:  return negate(a, b);
+				case 4:  return multiplication(a, b);
+				case 5:  return division(a, b);
+				case 6:  return floor(a, b);
+				case 7:  return ceiling(a, b);
+				case 8:  return round(a, b);
+				case 9:  return absolute(a, b);
+				case 10: return inverse(a, b);
+				case 11: return minimum(a, b);
+				case 12: return maximum(a, b);
+				case 13: return power(a, b);
+				case 14: return sine(a, b);
+				case 15: return cosine(a, b);
+				case 16: return tangent(a, b);
+				case 17: return exponent(a, b);
+				case 18: return logarithm(a, b);
+				case 19: return squareRoot(a, b);
+				case 20: return registerPower(a, b);
+			}
+			throw new RuntimeException("Invalid aluOps value: " + aluOp); // Should never be reached
+		}
+		
+		// Whether the operation looks at its second input. The unary ones are still given one, but ignore it
+		static boolean usesB(int aluOp) {
+			switch (aluOp) {
+				case 1: case 2: case 4: case 5: case 11: case 12: case 13: case 20: case 21: return true;
+				default: return false;
+			}
+		}
+
+		// Small function for checking what the sticky should be. One if any of the bits that the shift drops are set.
+		// Shifts of 32 or more wrap around (like >>> does), so by then every bit has been dropped at some point
+		static int sticky(int val, int shift) {
+			if (shift <= 0) {
+				return 0;
+			}
+			if (shift >= 32) {
+				return val != 0 ? 1 : 0;
+			}
+			return (val & ((1 << shift) - 1)) != 0 ? 1 : 0;
+		}
+		
+		// Runs in constant time: the alignment and normalization shifts come straight from the exponent difference and
+		// the position of the leading one instead of searching for them bit by bit
+		static int addition(int a, int b) {
+			// Quick exiting for any special cases
+			// Adding with NaN
+			if (a == 0xFFFFFFFF || b == 0xFFFFFFFF || a == 0x7FFFFFFF || b == 0x7FFFFFFF) {
+				return 0xFFFFFFFF;
+			}
+
+			// Adding with (+/-)infinity
+			if (a == 0x7f800000 || b == 0x7f800000 || a == 0xff800000 || b == 0xff800000) {
+				return 0xFFFFFFFF;
+			}
+			
+			// Adding with zero
+			if (a == 0 || a == 0x80000000) {
+				return b;
+			}
+			if (b == 0 || b == 0x80000000) {
+				return a;
+			}
+			
+			// Adding with the negation of the other value
+			if (a == (b ^ 0x80000000)) {
+				return 0;
+			}
+			
+			int sumSign, sumMant;
+			int signA = a & 0x80000000;
+			int signB = b & 0x80000000;
+			int expA = a & 0x7F800000;
+			int expB = b & 0x7F800000;
+			int mantissaA = (a & 0x007FFFFF) | 0x00800000; // Add the implicit one to both mantissa
+			int mantissaB = (b & 0x007FFFFF) | 0x00800000;
+			
+			// Rewrite smaller number to have the same exponent as the larger one. Ties count as A being the smaller one,
+			// it doesn't matter because the difference would be zero
+			boolean agrsBits = expA <= expB; // If the grs bits belong to the 'a' mantissa
+			int difference = Math.abs((expA >>> 23) - (expB >>> 23));
+			int smaller = agrsBits ? mantissaA : mantissaB;
+			int grBits = smaller >>> (difference - 3); // Guard and round bits
+			int stickyBit = sticky(smaller, difference); // Sticky bit is separate for ease of use
+			smaller >>>= difference;
+			int sumExp = agrsBits ? expB : expA;
+			if (agrsBits) {
+				mantissaA = smaller;
+			} else {
+				mantissaB = smaller;
+			}
+			int grs = grBits | stickyBit;
+			
+			if (signA == signB) { // Both are either negative or positive
+				sumMant = mantissaA + mantissaB + (grs > 4 ? 1 : 0); // Regardless of where they belong, the grs bits are added if they round
+				sumSign = signA;
+			} else { // Both are different
+				boolean aNegative = signA < signB;
+				sumMant = aNegative ? mantissaB - mantissaA : mantissaA - mantissaB;
+				if (aNegative == agrsBits && grs >= 4) { // If the grs bits belong to the negative mantissa and they round up, then we need to subtract one as well
+					sumMant -= 1;
+					grBits = 0;
+				} else if (grs > 4) { // If they belong to the positive mantissa we need to add
+					sumMant += 1;
+					grBits = 0;
+				}
+				
+				// If the result of adding the mantissas together is negative, then the sign bit needs to be set
+				sumSign = sumMant < 0 ? 0x80000000 : 0x00000000;
+				sumMant = Math.abs(sumMant);
+			}
+			
+			// Check if sum is normal, if not, then normalize it
+			int leadingOne = 31 - Integer.numberOfLeadingZeros(sumMant); // -1 if the sum is zero
+			if (leadingOne < 23) { // Leading zero, need to left shift. A sum of just zero or one is left alone
+				if (leadingOne > 0) {
+					int shift = 23 - leadingOne;
+					sumMant = (sumMant << shift) & 0x007FFFFF; // Normalize mantissa and remove implicit 1
+					grBits = (grBits << shift) & 6;
+					sumExp -= shift << 23; // Add the correct change to the exponent
+				}
+			} else if (leadingOne > 23) {
+				int shift = leadingOne - 23;
+				stickyBit |= sticky(sumMant, 23 - shift) | sticky(grBits, 23 - shift); // Check if sticky bit ends up enabled from the shift
+				sumMant = (sumMant >>> shift) & 0x007FFFFF; // Normalize mantissa and remove implicit 1
+				grBits = grBits >>> (23 - shift - 3); // Shift the rounding bits by the same amount
+				sumExp += shift << 23; // Add the correct change to the exponent
+			}
+			// Check for too large or too small numbers
+			if ((sumExp >>> 23)-127 < -126 || (sumExp >>> 23)-127 > 127) {
+				return 0xFFFFFFFF; // Return NaN
+			}
+
+			int sum = (sumExp & 0x7FE00000) | (sumMant & 0x007FFFFF); // Integer addition will propagate through this properly if needed
+			
+			// For the midpoint, round "down" if negative, truncate if positive
+			grs = grBits | stickyBit;
+			if (grs > 4 || (grs == 4 && sumSign != 0)) {
+				sum += 1;
+			}
+			// Nothing needs to be done for truncation
+
+			if ((sum & 0x80000000) != 0) { // Value overflowed during rounding
+				return 0xFFFFFFFF;
+			}
+			
+			return sumSign | sum; // Add in the sign to the existing sum
+		}
+		
+		static int subtraction(int a, int b) {
+			return addition(a, b ^ 0x80000000); // quick negation to reuse the addition function
+		}
+		
+		static int negate(int a, int b) {
+			return a ^ 0x80000000;
+		}
+		
+		// Full 24x24 bit integer multiply of the mantissas, rounded to nearest even using the guard, round and sticky
+		// bits of the 48 bit product. Results too big for single precision become infinity, and ones too small become zero
+		static int multiplication(int a, int b) {
+			// Multiplying with NaN
+			if (a == 0xFFFFFFFF || b == 0xFFFFFFFF || a == 0x7FFFFFFF || b == 0x7FFFFFFF)
+				return 0xFFFFFFFF;
+			
+			// Multiplying with (+/-)infinity
+			if (a == 0x7F800000 || b == 0x7F800000)
+				return 0x7F800000;
+			else if (a == 0xFF800000 || b == 0xFF800000)
+				return 0xFF800000;
+			
+			int signProd = (a ^ b) & 0x80000000;
+			int expA = (a & 0x7F800000) >>> 23;
+			int expB = (b & 0x7F800000) >>> 23;
+			
+			// Multiplying with zero (subnormals count as zero too)
+			if (expA == 0 || expB == 0)
+				return signProd;
+			
+			long mantissaA = (a & 0x007FFFFF) | 0x00800000;
+			long mantissaB = (b & 0x007FFFFF) | 0x00800000;
+			long product = mantissaA * mantissaB; // 1.x times 1.x is somewhere in [1, 4), so 47 or 48 bits
+			int expProd = expA + expB - 127;
+			
+			// Normalize so the product is 1.x, everything past the 23 mantissa bits is for rounding
+			int shift = 23;
+			if ((product >>> 47) != 0) {
+				shift = 24;
+				expProd++;
+			}
+			int mantissaProd = (int) (product >>> shift);
+			int guard = (int) (product >>> (shift - 1)) & 1;
+			int round = (int) (product >>> (shift - 2)) & 1;
+			int sticky = (product & ((1L << (shift - 2)) - 1)) != 0 ? 1 : 0;
+			
+			// Round to nearest, ties to even
+			if (guard == 1 && (round | sticky | (mantissaProd & 1)) == 1) {
+				mantissaProd++;
+				if (mantissaProd == 0x01000000) { // Rounded up into the next power of two
+					mantissaProd >>>= 1;
+					expProd++;
+				}
+			}
+			
+			if (expProd >= 0xFF)
+				return signProd | 0x7F800000;
+			if (expProd <= 0)
+				return signProd;
+			
+			return signProd | (expProd << 23) | (mantissaProd & 0x007FFFFF);
+		}
+		
+		// a * b + c, rounded once to nearest even. The 48 bit product is kept exactly and lined up with c in a long with
+		// the binary point at bit 60. Whatever gets shifted off the bottom of the smaller one only matters as a sticky
+		// bit, since that only happens when the other one is so much bigger that the result gets rounded 30 bits further
+		// up. Like multiplication, subnormal inputs count as zero and results too small for a normal float become zero.
+		// NaN and infinity go through the host's fma
+		static int fusedMultiplyAdd(int a, int b, int c) {
+			int expA = (a & 0x7F800000) >>> 23;
+			int expB = (b & 0x7F800000) >>> 23;
+			int expC = (c & 0x7F800000) >>> 23;
+			if (expA == 0xFF || expB == 0xFF || expC == 0xFF) {
+				float result = Math.fma(Float.intBitsToFloat(a), Float.intBitsToFloat(b), Float.intBitsToFloat(c));
+				return result != result ? 0xFFFFFFFF : Float.floatToIntBits(result);
+			}
+			
+			int signProd = (a ^ b) & 0x80000000;
+			int signC = c & 0x80000000;
+			if (expA == 0 || expB == 0) { // Zero product, so it's just c
+				return expC == 0 ? signProd & signC : c;
+			}
+			if (expC == 0) { // Adding zero, so it's just the product rounded once
+				int product = multiplication(a, b);
+				return (product & 0x7FFFFFFF) == 0 ? product & signC : product;
+			}
+			
+			long product = ((a & 0x007FFFFF | 0x00800000) * (long) (b & 0x007FFFFF | 0x00800000)) << 14; // [1, 4)
+			long addend = (long) (c & 0x007FFFFF | 0x00800000) << 37; // [1, 2)
+			int expProd = expA + expB - 127;
+			int exp = Math.max(expProd, expC);
+			product = shiftRightJam(product, exp - expProd);
+			addend = shiftRightJam(addend, exp - expC);
+			
+			long sum;
+			int sign;
+			if (signProd == signC) {
+				sum = product + addend;
+				sign = signC;
+			} else if (product >= addend) {
+				sum = product - addend;
+				sign = signProd;
+			} else {
+				sum = addend - product;
+				sign = signC;
+			}
+			if (sum == 0) {
+				return 0; // Exactly cancelled, which is +0 when rounding to nearest
+			}
+			
+			// Normalize to 24 bits, rounding off whatever is below them
+			int leadingOne = 63 - Long.numberOfLeadingZeros(sum);
+			exp += leadingOne - 60;
+			int shift = leadingOne - 23;
+			int mantissa;
+			if (shift <= 0) {
+				mantissa = (int) (sum << -shift);
+			} else {
+				mantissa = (int) (sum >>> shift);
+				long rest = sum & ((1L << shift) - 1);
+				long half = 1L << (shift - 1);
+				if (rest > half || (rest == half && (mantissa & 1) == 1)) {
+					mantissa++;
+					if (mantissa == 0x01000000) { // Rounded up into the next power of two
+						mantissa >>>= 1;
+						exp++;
+					}
+				}
+			}
+			
+			if (exp >= 0xFF) {
+				return sign | 0x7F800000;
+			}
+			if (exp <= 0) {
+				return sign;
+			}
+			return sign | (exp << 23) | (mantissa & 0x007FFFFF);
+		}
+		
+		// Shifts right, keeping a one in the lowest bit if anything that was shifted off wasn't zero
+		private static long shiftRightJam(long value, int shift) {
+			if (shift == 0) {
+				return value;
+			}
+			if (shift >= 63) {
+				return value != 0 ? 1 : 0;
+			}
+			return value >>> shift | ((value & ((1L << shift) - 1)) != 0 ? 1 : 0);
+		}
+		
+		static int division(int a, int b) {
+			return Float.floatToIntBits(Float.intBitsToFloat(a)/Float.intBitsToFloat(b));
+		}
+		
+		static int floor(int a, int b) {
+			int exp = a & 0x7F800000;
+			
+			if (Float.intBitsToFloat(exp) < 1 && Float.intBitsToFloat(exp) > 0 && Float.intBitsToFloat(a) < 0)
+				return 0xbF800000;
+			else if (Float.intBitsToFloat(exp) < 1 && Float.intBitsToFloat(exp) > 0 && Float.intBitsToFloat(a) >= 0)
+				return 0x00000000;
+			
+			int power = a & 0xFF800000;
+			int mantissa = a & 0x007FFFFF;
+			
+			mantissa >>>= (int) (23 - Math.log(Float.intBitsToFloat(exp)) / Math.log(2));
+			if (Float.intBitsToFloat(a) < 0){
+				if (mantissa == 0x007FFFFF){
+					power >>= 23;
+					power++;
+					power <<= 23;
+					mantissa = 0;
+				}
+				else
+					mantissa += 0x00000001;
+			}
+			mantissa <<= (int) (23 - Math.log(Float.intBitsToFloat(exp)) / Math.log(2));
+			
+			return power | mantissa;
+		}
+		
+		static int ceiling(int a, int b) {
+			int exp = a & 0x7F800000;
+			
+			if (Float.intBitsToFloat(exp) < 1 && Float.intBitsToFloat(exp) > 0 && Float.intBitsToFloat(a) < 0)
+				return 0x00000000;
+			else if (Float.intBitsToFloat(exp) < 1 && Float.intBitsToFloat(exp) > 0 && Float.intBitsToFloat(a) >= 0)
+				return 0x3F800000;
+			
+			int power = a & 0xFF800000;
+			int mantissa = a & 0x007FFFFF;
+			
+			mantissa >>>= (int) (23 - Math.log(Float.intBitsToFloat(exp)) / Math.log(2));
+			if (Float.intBitsToFloat(a) > 0){
+				if (mantissa == 0x007FFFFF){
+					power >>= 23;
+					power++;
+					power <<= 23;
+					mantissa = 0;
+				}
+				else
+					mantissa += 0x00000001;
+			}
+			mantissa <<= (int) (23 - Math.log(Float.intBitsToFloat(exp)) / Math.log(2));
+			
+			return power | mantissa;
+		}
+		
+		static int round(int a, int b) {
+			int exp = a & 0x7F800000;
+			int g = 0, r = 0, s = 0;
+			
+			if (Float.intBitsToFloat(exp) < 1 && Float.intBitsToFloat(exp) > 0 && Float.intBitsToFloat(a) < 0)
+				return 0x00000000;
+			else if (Float.intBitsToFloat(exp) < 1 && Float.intBitsToFloat(exp) > 0 && Float.intBitsToFloat(a) >= 0)
+				return 0x3F800000;
+			int mantissa = a & 0x007FFFFF;
+			
+			for (int i = 0; i < (int) ((23 - Math.log(Float.intBitsToFloat(exp)) / Math.log(2))); i++){
+				if (s != 1)
+					s = r;
+				r = g;
+				g = mantissa & 0x00000001;
+				
+				mantissa >>= 1;
+			}
+			
+			int sumBits = g * 100 + s * 10 + r;
+			
+			if ((a & 0x80000000) == 0){
+				if (sumBits > 100)
+					return ceiling(a, b);
+				else if (sumBits < 100)
+					return floor(a, b);
+				else{
+					if ((mantissa & 0x00000001) == 1)
+						return ceiling(a, b);
+					else
+						return floor(a, b);
+				}
+			}
+			else{
+				if (sumBits > 100)
+					return floor(a, b);
+				else if (sumBits < 100)
+					return ceiling(a, b);
+				else{
+					if ((mantissa & 0x00000001) == 1)
+						return floor(a, b);
+					else
+						return ceiling(a, b);
+				}
+			}
+		}
+		
+		static int absolute(int a, int b) {
+			return a & 0x7FFFFFFF; // Mask out the sign bit to make it positive
+		}
+		
+		static int inverse(int a, int b) {
+			return a ^ 0x80000000; // XOR the sign bit with one to negate
+		}
+		
+		static int minimum(int a, int b) {
+			//Mask and isolate the sign bits of each number
+			int signA = a & 0x80000000;
+			int signB = b & 0x80000000;
+			
+			//If one of the numbers is positive and the other is negative, return the positive one; otherwise, move on
+			if (signA < signB)
+				return a;
+			else if (signB < signA)
+				return b;
+			
+			//Mask and isolate the exponent bits of each number
+			int expA = a & 0x7F800000;
+			int expB = b & 0x7F800000;
+			
+			//Return the number with the lower exponent; if they're the same, then move on
+			if (expA < expB)
+				return a;
+			else if (expB < expA)
+				return b;
+			
+			//Mask and isolate the mantissa bits of each number
+			int mantissaA = a & 0x007FFFFF;
+			int mantissaB = b & 0x007FFFFF;
+			
+			//Return the number with the lower mantissa
+			if (mantissaA < mantissaB)
+				return a;
+			else
+				return b;
+		}
+		
+		static int maximum(int a, int b) {
+			//Mask and isolate the sign bits of each number
+			int signA = a & 0x80000000;
+			int signB = b & 0x80000000;
+			
+			//If one of the numbers is positive and the other is negative, return the positive one; otherwise, move on
+			if (signA > signB)
+				return a;
+			else if (signB > signA)
+				return b;
+			
+			//Mask and isolate the exponent bits of each number
+			int expA = a & 0x7F800000;
+			int expB = b & 0x7F800000;
+			
+			//Return the number with the higher exponent; if they're the same, then move on
+			if (expA > expB)
+				return a;
+			else if (expB > expA)
+				return b;
+			
+			//Mask and isolate the mantissa bits of each number
+			int mantissaA = a & 0x007FFFFF;
+			int mantissaB = b & 0x007FFFFF;
+			
+			//Return the number with the higher mantissa
+			if (mantissaA > mantissaB)
+				return a;
+			else
+				return b;
+		}
+		
+		// I type, b is the unsigned immediate exponent
+		static int power(int a, int b) {
+			return Float.floatToIntBits(power(Float.intBitsToFloat(a), b));
+		}
+		
+		// R type, the exponent comes from a register and doesn't have to be a whole number
+		static int registerPower(int a, int b) {
+			float base = Float.intBitsToFloat(a);
+			float exponent = Float.intBitsToFloat(b);
+			
+			if (exponent == (int) exponent && Math.abs(exponent) <= 0x01000000) {
+				float result = power(base, (int) Math.abs(exponent));
+				return Float.floatToIntBits(exponent < 0 ? 1 / result : result);
+			}
+			return Float.floatToIntBits((float) Math.pow(base, exponent)); // Fractional powers
+		}
+		
+		// Exponentiation by squaring, so at most two multiplies per bit of the exponent. Done in double precision and
+		// rounded once at the end. Stops early once the result is sure to overflow to infinity or underflow to zero
+		static float power(float base, int exponent) {
+			boolean negative = base < 0 && (exponent & 1) == 1;
+			double square = Math.abs(base);
+			double result = 1;
+			
+			while (exponent != 0) {
+				if ((exponent & 1) == 1) {
+					result *= square;
+				}
+				exponent >>>= 1;
+				if (exponent != 0) {
+					square *= square;
+					// The highest bit is still to come, so the result gets multiplied by this square at some point
+					if (square > Float.MAX_VALUE) {
+						result = Double.POSITIVE_INFINITY;
+						break;
+					}
+					if (square < Float.MIN_VALUE / 2) {
+						result = 0;
+						break;
+					}
+				}
+			}
+			
+			return (float) (negative ? -result : result);
+		}
+		
+		static int sine(int a, int b) {
+			return TranscendentalUnit.sine(a);
+		}
+		
+		static int cosine(int a, int b) {
+			return TranscendentalUnit.cosine(a);
+		}
+		
+		static int tangent(int a, int b) {
+			return TranscendentalUnit.tangent(a);
+		}
+		
+		static int exponent(int a, int b) {
+			return TranscendentalUnit.exponent(a);
+		}
+		
+		static int logarithm(int a, int b) {
+			return Float.floatToIntBits((float) Math.log(Float.intBitsToFloat(a)));
+		}
+		
+		static int squareRoot(int a, int b) {
+			return Float.floatToIntBits((float) Math.sqrt(Float.intBitsToFloat(a)));
+		}
+	}
+}
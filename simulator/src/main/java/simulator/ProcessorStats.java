@@ -0,0 +1,297 @@
+package simulator;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Execution statistics collected by any number of Processors: how many of each opcode ran, a latency histogram for
+// each opcode, and how many instructions were retired overall. Attach it with Processor.setStats. Processors without
+// one run their normal loops and pay nothing.
+//
+// Recording never allocates. The counters are split into stripes picked by thread, so processors running in parallel
+// mostly update different cache lines. Reading adds the stripes back together, so it's a lot slower than recording
+// and only gives a consistent snapshot if nothing is running at the time.
+//
+// The decoded and structural engines time every instruction. The threaded and compiled engines run the whole program
+// in one call, so for those the counts come from the program and there are no latencies. That only works when every
+// instruction runs once, so programs with branches run on the decoded engine instead while stats are attached (which
+// also means the checked engine doesn't check them).
+//
+// Also readable over JMX (jconsole, VisualVM, ...) once registered, see ProcessorStatsMXBean
+class ProcessorStats implements ProcessorStatsMXBean {
+
+	static final int OPCODES = 32;
+
+	// Log-linear histogram buckets like HdrHistogram: values below 16ns get a bucket each, and every power of two above
+	// that is split into 16 buckets, so a bucket is never more than 1/16 (6.25%) wide relative to its value.
+	// Anything over 2^31ns (about 2 seconds) goes in the last bucket
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_MAGNITUDE = 31;
+	static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final Stripe[] stripes;
+	private final int stripeMask;
+	private final LongAdder busyNanos = new LongAdder();
+	private final LongAdder runs = new LongAdder();
+	private volatile long resetAt = System.nanoTime();
+	private ObjectName registeredAs;
+
+	private static final class Stripe {
+		final AtomicLongArray counts = new AtomicLongArray(OPCODES);
+		final AtomicLongArray totalNanos = new AtomicLongArray(OPCODES);
+		final AtomicLongArray buckets = new AtomicLongArray(OPCODES * BUCKETS);
+	}
+
+	ProcessorStats() {
+		int size = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+		stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new Stripe();
+		}
+		stripeMask = size - 1;
+	}
+
+	private Stripe stripe() {
+		long id = Thread.currentThread().getId();
+		return stripes[(int) (id ^ (id >>> 16)) & stripeMask];
+	}
+
+	// One instruction that took the given time
+	void record(int opcode, long nanos) {
+		Stripe stripe = stripe();
+		stripe.counts.incrementAndGet(opcode);
+		stripe.totalNanos.addAndGet(opcode, nanos);
+		stripe.buckets.incrementAndGet(opcode * BUCKETS + bucket(nanos));
+	}
+
+	// A run of instructions that weren't timed individually
+	void recordCount(int opcode, long count) {
+		stripe().counts.addAndGet(opcode, count);
+	}
+
+	// Called once per Processor.start()
+	void recordRun(long nanos) {
+		busyNanos.add(nanos);
+		runs.increment();
+	}
+
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(0, nanos);
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+		if (magnitude > MAX_MAGNITUDE) {
+			return BUCKETS - 1;
+		}
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (nanos >>> shift); // The shifted value is 16 to 31, so each power follows on
+	}
+
+	// Smallest value that goes in the bucket
+	static long bucketStart(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+	}
+
+	long count(int opcode) {
+		long count = 0;
+		for (Stripe stripe : stripes) {
+			count += stripe.counts.get(opcode);
+		}
+		return count;
+	}
+
+	// Only counts instructions that were timed
+	double meanNanos(int opcode) {
+		long timed = 0, total = 0;
+		for (Stripe stripe : stripes) {
+			total += stripe.totalNanos.get(opcode);
+			for (int b = 0; b < BUCKETS; b++) {
+				timed += stripe.buckets.get(opcode * BUCKETS + b);
+			}
+		}
+		return timed == 0 ? 0 : (double) total / timed;
+	}
+
+	// Latency that the given fraction of timed instructions came in under, to within the bucket width. 0 if none
+	long percentileNanos(int opcode, double fraction) {
+		long[] merged = new long[BUCKETS];
+		long timed = 0;
+		for (Stripe stripe : stripes) {
+			for (int b = 0; b < BUCKETS; b++) {
+				long n = stripe.buckets.get(opcode * BUCKETS + b);
+				merged[b] += n;
+				timed += n;
+			}
+		}
+		if (timed == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(fraction * timed));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += merged[b];
+			if (seen >= target) {
+				return bucketStart(b);
+			}
+		}
+		return bucketStart(BUCKETS - 1);
+	}
+
+	long retired() {
+		long total = 0;
+		for (int opcode = 0; opcode < OPCODES; opcode++) {
+			total += count(opcode);
+		}
+		return total;
+	}
+
+	void reset() {
+		for (Stripe stripe : stripes) {
+			for (int i = 0; i < OPCODES; i++) {
+				stripe.counts.set(i, 0);
+				stripe.totalNanos.set(i, 0);
+			}
+			for (int i = 0; i < OPCODES * BUCKETS; i++) {
+				stripe.buckets.set(i, 0);
+			}
+		}
+		busyNanos.reset();
+		runs.reset();
+		resetAt = System.nanoTime();
+	}
+
+	// One line per opcode that ran, busiest first
+	String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d instructions retired in %d runs, %.0f instructions/s while running%n", retired(),
+			runs.sum(), getBusyInstructionsPerSecond()));
+		report.append(String.format("%-8s %12s %10s %10s %10s %10s%n", "opcode", "count", "mean ns", "p50 ns", "p99 ns", "p99.9 ns"));
+		Integer[] order = new Integer[OPCODES];
+		long[] counts = new long[OPCODES];
+		for (int opcode = 0; opcode < OPCODES; opcode++) {
+			order[opcode] = opcode;
+			counts[opcode] = count(opcode);
+		}
+		Arrays.sort(order, (x, y) -> Long.compare(counts[y], counts[x]));
+		for (int opcode : order) {
+			if (counts[opcode] == 0) {
+				continue;
+			}
+			if (percentileNanos(opcode, 1) == 0 && meanNanos(opcode) == 0) { // Only counted, never timed
+				report.append(String.format("%-8s %12d %10s %10s %10s %10s%n", name(opcode), counts[opcode], "-", "-", "-", "-"));
+				continue;
+			}
+			report.append(String.format("%-8s %12d %10.1f %10d %10d %10d%n", name(opcode), counts[opcode], meanNanos(opcode),
+				percentileNanos(opcode, 0.5), percentileNanos(opcode, 0.99), percentileNanos(opcode, 0.999)));
+		}
+		return report.toString();
+	}
+
+	private static String name(int opcode) {
+		return opcode < Assembler.INSTRUCTION_NAMES.length ? Assembler.INSTRUCTION_NAMES[opcode] : "op" + opcode;
+	}
+
+	// Registers with the platform MBean server as simulator:type=ProcessorStats,name=<name>
+	synchronized void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("simulator:type=ProcessorStats,name=" + ObjectName.quote(name));
+			server.registerMBean(this, objectName);
+			registeredAs = objectName;
+		} catch (JMException e) {
+			throw new RuntimeException("Unable to register processor stats as " + name, e);
+		}
+	}
+
+	synchronized void unregister() {
+		if (registeredAs == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+		} catch (JMException e) {
+			throw new RuntimeException("Unable to unregister processor stats", e);
+		}
+		registeredAs = null;
+	}
+
+	// JMX attributes
+
+	@Override
+	public long getInstructionsRetired() {
+		return retired();
+	}
+
+	@Override
+	public long getRuns() {
+		return runs.sum();
+	}
+
+	@Override
+	public double getInstructionsPerSecond() {
+		long elapsed = System.nanoTime() - resetAt;
+		return elapsed == 0 ? 0 : retired() * 1e9 / elapsed;
+	}
+
+	@Override
+	public double getBusyInstructionsPerSecond() {
+		long busy = busyNanos.sum();
+		return busy == 0 ? 0 : retired() * 1e9 / busy;
+	}
+
+	@Override
+	public Map<String, Long> getOpcodeCounts() {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (int opcode = 0; opcode < OPCODES; opcode++) {
+			long count = count(opcode);
+			if (count != 0) {
+				counts.put(name(opcode), count);
+			}
+		}
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getMeanLatencyNanos() {
+		Map<String, Double> means = new LinkedHashMap<>();
+		for (int opcode = 0; opcode < OPCODES; opcode++) {
+			if (count(opcode) != 0) {
+				means.put(name(opcode), meanNanos(opcode));
+			}
+		}
+		return means;
+	}
+
+	@Override
+	public Map<String, Long> getP99LatencyNanos() {
+		Map<String, Long> p99 = new LinkedHashMap<>();
+		for (int opcode = 0; opcode < OPCODES; opcode++) {
+			if (count(opcode) != 0) {
+				p99.put(name(opcode), percentileNanos(opcode, 0.99));
+			}
+		}
+		return p99;
+	}
+
+	@Override
+	public String getReport() {
+		return report();
+	}
+
+	@Override
+	public void resetStats() {
+		reset();
+	}
+}
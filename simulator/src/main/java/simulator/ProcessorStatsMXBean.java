@@ -0,0 +1,28 @@
+package simulator;
+
+import java.util.Map;
+
+// What ProcessorStats shows over JMX. Has to be public for the MBean server to accept it
+public interface ProcessorStatsMXBean {
+
+	long getInstructionsRetired();
+
+	long getRuns();
+
+	// Since the stats were created or last reset, whether or not anything was running
+	double getInstructionsPerSecond();
+
+	// Only counting the time processors were actually running
+	double getBusyInstructionsPerSecond();
+
+	// Keyed by mnemonic, only opcodes that have run
+	Map<String, Long> getOpcodeCounts();
+
+	Map<String, Double> getMeanLatencyNanos();
+
+	Map<String, Long> getP99LatencyNanos();
+
+	String getReport();
+
+	void resetStats();
+}
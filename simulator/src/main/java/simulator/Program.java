@@ -0,0 +1,114 @@
+package simulator;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// An assembled program: the encoded instructions plus the full precision value of every Set immediate that was out of
+// range for the custom 23 bit format. Never changes once built, so one Program can be shared by any number of
+// Processors on any number of threads
+final class Program {
+
+	private final IntBuffer instructions; // Read only, and only ever read with absolute gets so it's safe to share
+
+	// Sorted instruction indexes of Sets that need their full precision value, and those values
+	private final int[] wideIndexes;
+	private final int[] wideValues;
+
+	private Program(IntBuffer instructions, int[] wideIndexes, int[] wideValues) {
+		this.instructions = instructions.asReadOnlyBuffer();
+		this.wideIndexes = wideIndexes;
+		this.wideValues = wideValues;
+	}
+
+	// For instructions that were encoded somewhere else, so there are no full precision immediates to go with them
+	static Program of(int[] instructions) {
+		return new Program(IntBuffer.wrap(instructions.clone()), new int[0], new int[0]);
+	}
+
+	// Uses the buffer as it is, so it mustn't be changed afterwards. The immediate indexes have to be in order
+	static Program wrap(IntBuffer instructions, int[] wideIndexes, int[] wideValues) {
+		return new Program(instructions, wideIndexes, wideValues);
+	}
+
+	int length() {
+		return instructions.limit();
+	}
+
+	int instruction(int index) {
+		return instructions.get(index);
+	}
+
+	int[] instructions() {
+		int[] copy = new int[length()];
+		instructions.get(0, copy);
+		return copy;
+	}
+
+	// Instruction indexes of the full precision immediates, in order, and their values in the same order
+	int[] wideIndexes() {
+		return wideIndexes.clone();
+	}
+
+	int[] wideValues() {
+		return wideValues.clone();
+	}
+
+	boolean hasWideImmediate(int index) {
+		return Arrays.binarySearch(wideIndexes, index) >= 0;
+	}
+
+	int wideImmediate(int index) {
+		int i = Arrays.binarySearch(wideIndexes, index);
+		if (i < 0) {
+			throw new RuntimeException("Instruction " + index + " doesn't have a full precision immediate");
+		}
+		return wideValues[i];
+	}
+
+	static class Builder {
+		private int[] instructions = new int[64];
+		private int length = 0;
+		private int[] wideIndexes = new int[8];
+		private int[] wideValues = new int[8];
+		private int wideLength = 0;
+
+		void add(int instruction) {
+			if (length == instructions.length) {
+				instructions = Arrays.copyOf(instructions, length * 2);
+			}
+			instructions[length++] = instruction;
+		}
+
+		// Adds an F type instruction whose immediate couldn't be stored in the custom format
+		void add(int instruction, int wideImmediate) {
+			if (wideLength == wideIndexes.length) {
+				wideIndexes = Arrays.copyOf(wideIndexes, wideLength * 2);
+				wideValues = Arrays.copyOf(wideValues, wideLength * 2);
+			}
+			wideIndexes[wideLength] = length;
+			wideValues[wideLength++] = wideImmediate;
+			add(instruction);
+		}
+
+		int length() {
+			return length;
+		}
+
+		int instruction(int index) {
+			return instructions[index];
+		}
+
+		// Replaces an instruction that was already added, for filling in branch targets once the label is known
+		void set(int index, int instruction) {
+			if (index < 0 || index >= length) {
+				throw new RuntimeException("No instruction " + index + " to replace");
+			}
+			instructions[index] = instruction;
+		}
+
+		Program build() {
+			return new Program(IntBuffer.wrap(Arrays.copyOf(instructions, length)),
+				Arrays.copyOf(wideIndexes, wideLength), Arrays.copyOf(wideValues, wideLength));
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps programs that have already been assembled, decoded and compiled, so submitting the same source again goes
+// straight to running it. Entries are keyed by the SHA-256 of the source text, which means two copies of the same
+// program share an entry however they were submitted.
+//
+// The cache holds at most maxInstructions instructions across all its programs and drops the least recently used
+// ones to make room. If it's given a directory it also keeps a program image of everything it assembles there, so a
+// new process only has to map the image instead of assembling the source again. The directory has its own limit in
+// bytes: once the images in it add up to more than that, the ones used least recently (by last modified time, which a
+// disk hit updates) are deleted until they fit. Processes sharing a directory each keep it under their own limit.
+//
+// Safe to use from any number of threads. Two threads missing on the same source at once may both assemble it, but
+// only one copy ends up in the cache
+class ProgramCache {
+
+	private final long maxInstructions;
+	private final Path directory; // Null for memory only
+	private final long maxDirectoryBytes;
+	private final AtomicLong directoryBytes = new AtomicLong(); // Roughly, it's only counted properly when it looks full
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order, eldest first
+	private long instructions = 0;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder diskHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder diskEvictions = new LongAdder();
+
+	ProgramCache(long maxInstructions) {
+		this(maxInstructions, null, 0);
+	}
+
+	ProgramCache(long maxInstructions, Path directory, long maxDirectoryBytes) {
+		this.maxInstructions = maxInstructions;
+		this.directory = directory;
+		this.maxDirectoryBytes = maxDirectoryBytes;
+		if (directory != null) {
+			try {
+				Files.createDirectories(directory);
+			} catch (IOException e) {
+				throw new RuntimeException("Unable to create cache directory " + directory, e);
+			}
+			trimDirectory(null); // Whatever an earlier process left might already be over the limit
+		}
+	}
+
+	// One cached program. The decoded program is built straight away, the kernels only when an engine first asks for one
+	static final class Entry {
+		final String key;
+		final Program program;
+		final Processor.DecodedProgram decoded;
+		private final Map<Processor.Engine, ProgramCompiler.Kernel> kernels = new EnumMap<>(Processor.Engine.class);
+
+		private Entry(String key, Program program) {
+			this.key = key;
+			this.program = program;
+			decoded = Processor.DecodedProgram.decode(program);
+		}
+
+		// The checked engine runs the compiled kernel, so they share one
+		synchronized ProgramCompiler.Kernel kernel(Processor.Engine engine) {
+			Processor.Engine kind = engine == Processor.Engine.CHECKED ? Processor.Engine.COMPILED : engine;
+			return kernels.computeIfAbsent(kind, k -> Processor.kernel(decoded, k));
+		}
+
+		// A new Processor for one run, reusing everything that's already been built
+		Processor processor(Processor.Engine engine) {
+			boolean needsKernel = engine != Processor.Engine.STRUCTURAL && engine != Processor.Engine.DECODED;
+			return new Processor(program, engine, decoded, needsKernel ? kernel(engine) : null);
+		}
+	}
+
+	private interface Source {
+		Program load() throws IOException;
+	}
+
+	Entry get(String source) {
+		return get(key(source.getBytes(StandardCharsets.UTF_8)), () -> assemble(new StringReader(source)));
+	}
+
+	// A program image that's already in memory (see ProgramImage.read), keyed by the hash of the image itself
+	Entry get(ByteBuffer image) {
+		MessageDigest digest = sha256();
+		digest.update(image.duplicate());
+		return get(hex(digest.digest()), () -> ProgramImage.read(image, true));
+	}
+
+	// Hashes the file as it reads it, so even a very large source is never in memory all at once
+	Entry get(Path sourceFile) throws IOException {
+		MessageDigest digest = sha256();
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream in = Files.newInputStream(sourceFile)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return get(hex(digest.digest()), () -> assemble(Files.newBufferedReader(sourceFile)));
+	}
+
+	private Entry get(String key, Source source) {
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits.increment();
+				return entry;
+			}
+		}
+
+		Entry entry = new Entry(key, load(key, source)); // Outside the lock so other programs aren't held up
+		synchronized (this) {
+			Entry existing = entries.putIfAbsent(key, entry);
+			if (existing != null) {
+				return existing; // Someone else got there first
+			}
+			instructions += entry.program.length();
+			evict(entry);
+			return entry;
+		}
+	}
+
+	private Program load(String key, Source source) {
+		Path image = directory == null ? null : directory.resolve(key + ".img");
+		if (image != null && Files.exists(image)) {
+			try {
+				Program program = ProgramImage.load(image);
+				diskHits.increment();
+				try {
+					Files.setLastModifiedTime(image, FileTime.fromMillis(System.currentTimeMillis())); // Recently used
+				} catch (IOException e) {
+					// Only makes it more likely to be trimmed
+				}
+				return program;
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Ignoring cached image " + image + ": " + e.getMessage());
+			}
+		}
+
+		misses.increment();
+		Program program;
+		try {
+			program = source.load();
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to read program source", e);
+		}
+		if (image != null) {
+			try {
+				// Written under a temporary name first so another process never maps half an image
+				Path temporary = Files.createTempFile(directory, key, ".tmp");
+				ProgramImage.write(program, temporary);
+				Files.move(temporary, image, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				if (directoryBytes.addAndGet(Files.size(image)) > maxDirectoryBytes) {
+					trimDirectory(image);
+				}
+			} catch (IOException e) {
+				System.err.println("Unable to write cached image " + image + ": " + e.getMessage());
+			}
+		}
+		return program;
+	}
+
+	private static Program assemble(Reader source) throws IOException {
+		try (Reader in = source) {
+			return Assembler.assemble(in);
+		}
+	}
+
+	// Drops least recently used programs until everything fits again, but never the one that was just added
+	private void evict(Entry added) {
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (instructions > maxInstructions && eldest.hasNext()) {
+			Entry entry = eldest.next();
+			if (entry == added) {
+				continue;
+			}
+			eldest.remove();
+			instructions -= entry.program.length();
+			evictions.increment();
+		}
+	}
+
+	// Counts what's really in the directory (other processes may have added to it), then deletes the least recently
+	// used images until it's a tenth under the limit, so the next few writes don't have to list the directory again.
+	// Never the one that was just written
+	private synchronized void trimDirectory(Path added) {
+		List<Path> images = new ArrayList<>();
+		try (DirectoryStream<Path> listing = Files.newDirectoryStream(directory, "*.img")) {
+			listing.forEach(images::add);
+		} catch (IOException e) {
+			System.err.println("Unable to list cache directory " + directory + ": " + e.getMessage());
+			return;
+		}
+		Map<Path, Long> sizes = new HashMap<>(), used = new HashMap<>();
+		long total = 0;
+		for (Path image : images) {
+			try {
+				sizes.put(image, Files.size(image));
+				used.put(image, Files.getLastModifiedTime(image).toMillis());
+				total += sizes.get(image);
+			} catch (IOException e) {
+				// Deleted by someone else since the listing
+			}
+		}
+		images.removeIf(image -> !sizes.containsKey(image) || image.equals(added));
+		images.sort(Comparator.comparing(used::get));
+		long target = total > maxDirectoryBytes ? maxDirectoryBytes - maxDirectoryBytes / 10 : total;
+		for (Iterator<Path> eldest = images.iterator(); total > target && eldest.hasNext(); ) {
+			Path image = eldest.next();
+			try {
+				if (Files.deleteIfExists(image)) {
+					diskEvictions.increment();
+				}
+				total -= sizes.get(image);
+			} catch (IOException e) {
+				System.err.println("Unable to delete cached image " + image + ": " + e.getMessage());
+			}
+		}
+		directoryBytes.set(total);
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	synchronized long instructions() {
+		return instructions;
+	}
+
+	synchronized void clear() {
+		entries.clear();
+		instructions = 0;
+	}
+
+	long hits() {
+		return hits.sum();
+	}
+
+	// Misses in memory that were found on disk
+	long diskHits() {
+		return diskHits.sum();
+	}
+
+	// Programs that had to be assembled (or read from an image that was passed in)
+	long misses() {
+		return misses.sum();
+	}
+
+	long evictions() {
+		return evictions.sum();
+	}
+
+	// Images deleted from the directory to keep it under its limit
+	long diskEvictions() {
+		return diskEvictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "ProgramCache[" + size() + " programs, " + instructions() + " instructions, " + hits() + " hits, "
+			+ diskHits() + " disk hits, " + misses() + " misses, " + evictions() + " evictions"
+			+ (directory == null ? "" : ", " + diskEvictions() + " images deleted") + "]";
+	}
+
+	private static String key(byte[] source) {
+		return hex(sha256().digest(source));
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e); // Every JVM has to provide SHA-256
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,565 @@
+package simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Third execution engine. Turns a decoded program into the bytes of a JVM class and loads it as a hidden class, so
+// the program runs as plain bytecode with the registers kept in local variables and every instruction being a direct
+// static call into the ALU routines. HotSpot can then inline across the whole program.
+//
+// The generated class looks roughly like this:
+//
+//     final class CompiledProgram implements ProgramCompiler.Kernel {
+//         public int[] run(int[] registers) {
+//             int[] outputs = new int[<number of Gets>];
+//             chunk0(registers, outputs);
+//             chunk1(registers, outputs);
+//             ...
+//             return outputs;
+//         }
+//
+//         static void chunk0(int[] registers, int[] outputs) {
+//             int r0 = registers[0]; ... int r15 = registers[15];
+//             r1 = Processor.ArithmeticLogicUnit.addition(r2, r3); // Fadd R1, R2, R3
+//             outputs[0] = r1;                                     // Get R1
+//             ...
+//             registers[0] = r0; ... registers[15] = r15;
+//         }
+//     }
+//
+// The program is split into chunks because the JVM limits a single method to 64KB of bytecode.
+//
+// Programs with branches don't come through here as a whole, TracingEngine runs those. What it compiles is a trace:
+// the instructions one trip around a hot loop actually ran, branches included, which becomes
+//
+//     final class CompiledTrace implements TracingEngine.Trace {
+//         public int run(int[] registers, TracingEngine.Outputs outputs, DataSegment memory) {
+//             int r0 = registers[0]; ... int r15 = registers[15];
+//             int exit = 0;
+//         loop:
+//             r1 = memory.load(r3, -1);                                                  // Load R1, -1(R3)
+//             r1 = Processor.ArithmeticLogicUnit.multiplication(r1, r2);                // Fmul R1, R1, R2
+//             if (Processor.BranchUnit.taken(25, r1, r4)) { exit = 9; goto done; }       // Blt R1, R4, x (wasn't taken)
+//             r3 = Processor.BranchUnit.countDown(r3);                                   // Loop R3, loop
+//             if (Processor.BranchUnit.taken(27, r3, 0)) goto loop;
+//             exit = 4;
+//         done:
+//             registers[0] = r0; ... registers[15] = r15;
+//             return exit;
+//         }
+//     }
+//
+// Every branch in the trace is a guard: if it goes the way it went when the trace was recorded the trace carries on,
+// otherwise the registers are written back and the interpreter takes over from wherever the branch really went
+class ProgramCompiler {
+
+	interface Kernel {
+		int[] run(int[] registers); // Returns the result of every Get in order. The registers are updated in place
+	}
+
+	private static final int CHUNK_SIZE = 2048; // Instructions per method, worst case is 12 bytes each
+
+	private static final String CLASS_NAME = "simulator/CompiledProgram"; // Hidden classes have to be in the same package as the lookup
+	private static final String ALU_CLASS = "simulator/Processor$ArithmeticLogicUnit";
+	private static final String KERNEL_CLASS = "simulator/ProgramCompiler$Kernel";
+	private static final String CHUNK_DESCRIPTOR = "([I[I)V";
+
+	private static final String TRACE_NAME = "simulator/CompiledTrace";
+	private static final String TRACE_CLASS = "simulator/TracingEngine$Trace";
+	private static final String OUTPUTS_CLASS = "simulator/TracingEngine$Outputs";
+	private static final String BRANCH_CLASS = "simulator/Processor$BranchUnit";
+	private static final String MEMORY_CLASS = "simulator/DataSegment";
+	private static final int MAX_TRACE_CODE = Short.MAX_VALUE; // Jumps only reach 32KB either way
+
+	// Index is the aluOp
+	private static final String[] ALU_METHODS = {null, "addition", "subtraction", "negate", "multiplication", "division",
+		"floor", "ceiling", "round", "absolute", "inverse", "minimum", "maximum", "power", "sine", "cosine", "tangent",
+		"exponent", "logarithm", "squareRoot", "registerPower"}; // Fma takes three, so it gets its own call
+
+	// Bytecode instructions that get used
+	private static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13, ILOAD = 0x15, ALOAD_0 = 0x2a,
+		ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, ALOAD_3 = 0x2d, IALOAD = 0x2e, ISTORE = 0x36, ASTORE_2 = 0x4d, IASTORE = 0x4f, IFEQ = 0x99,
+		IFNE = 0x9a, GOTO = 0xa7, IRETURN = 0xac, ARETURN = 0xb0, RETURN = 0xb1, INVOKEVIRTUAL = 0xb6,
+		INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, NEWARRAY = 0xbc, T_INT = 10;
+
+	// Locals of a chunk method: 0 is the register array, 1 the output array, then one for each register
+	private static final int FIRST_REGISTER_LOCAL = 2;
+
+	// Locals of a trace: 0 is this, 1 the register array, 2 the outputs, 3 the data segment, then the registers and the
+	// exit pc
+	private static final int TRACE_FIRST_REGISTER = 4;
+	private static final int TRACE_EXIT = TRACE_FIRST_REGISTER + 16;
+
+	// Stack map frame types
+	private static final int FULL_FRAME = 255, ITEM_INTEGER = 1, ITEM_OBJECT = 7;
+
+	private ProgramCompiler() {
+
+	}
+
+	// Throws if the program can't be turned into a valid class (too many constants or methods for one class file)
+	static Kernel compile(Processor.DecodedProgram program) {
+		return (Kernel) define(emit(program), "program");
+	}
+
+	private static Object define(byte[] bytes, String what) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		} catch (Throwable e) {
+			throw new RuntimeException("Unable to load compiled " + what, e);
+		}
+	}
+
+	static byte[] emit(Processor.DecodedProgram program) {
+		if (program.hasBranches() || program.usesMemory()) {
+			throw new RuntimeException("Programs with branches or Load/Store run on a TracingEngine, only their loops get compiled");
+		}
+		ConstantPool pool = new ConstantPool();
+		int chunks = Math.max(1, (program.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		if (chunks + 2 > 0xFFFF) {
+			throw new RuntimeException("Program too long to compile: " + program.length + " instructions");
+		}
+
+		// Every chunk needs to know which output slot its first Get writes to
+		int[] firstSlot = new int[chunks];
+		int outputs = 0;
+		for (int i = 0; i < program.length; i++) {
+			if (i % CHUNK_SIZE == 0) {
+				firstSlot[i / CHUNK_SIZE] = outputs;
+			}
+			if (program.opcode[i] == 1) {
+				outputs++;
+			}
+		}
+
+		ByteArrayOutputStream methods = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = new DataOutputStream(methods);
+			writeConstructor(out, pool);
+			writeRun(out, pool, chunks, outputs);
+			for (int c = 0; c < chunks; c++) {
+				int from = c * CHUNK_SIZE;
+				writeChunk(out, pool, program, c, from, Math.min(program.length, from + CHUNK_SIZE), firstSlot[c]);
+			}
+			return writeClass(pool, CLASS_NAME, KERNEL_CLASS, chunks + 2, methods);
+		} catch (IOException e) {
+			throw new RuntimeException(e); // Can't happen writing to memory
+		}
+	}
+
+	private static byte[] writeClass(ConstantPool pool, String name, String implemented, int methodCount,
+	                                 ByteArrayOutputStream methods) throws IOException {
+		int thisClass = pool.classRef(name);
+		int superClass = pool.classRef("java/lang/Object");
+		int kernel = pool.classRef(implemented);
+		if (pool.size() > 0xFFFF) {
+			throw new RuntimeException("Program has too many constants to compile: " + pool.size());
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream cls = new DataOutputStream(bytes);
+		cls.writeInt(0xCAFEBABE);
+		cls.writeShort(0);  // Minor version
+		cls.writeShort(52); // Java 8 class files don't need stack map frames for straight line code, traces bring their own
+		pool.write(cls);
+		cls.writeShort(0x0030); // ACC_FINAL | ACC_SUPER
+		cls.writeShort(thisClass);
+		cls.writeShort(superClass);
+		cls.writeShort(1);
+		cls.writeShort(kernel);
+		cls.writeShort(0); // No fields
+		cls.writeShort(methodCount);
+		methods.writeTo(cls);
+		cls.writeShort(0); // No class attributes
+		return bytes.toByteArray();
+	}
+
+	// path is what ran on one trip around a loop, starting at its first instruction, as pc << 1 with the low bit set
+	// if the instruction was a branch that was taken. The last one has to be the taken branch back to the start
+	static TracingEngine.Trace compileTrace(Processor.DecodedProgram program, int[] path, int length) {
+		return (TracingEngine.Trace) define(emitTrace(program, path, length), "trace");
+	}
+
+	static byte[] emitTrace(Processor.DecodedProgram program, int[] path, int length) {
+		int last = path[length - 1];
+		if ((last & 1) == 0 || program.target[last >>> 1] != path[0] >>> 1) {
+			throw new RuntimeException("A trace has to end with the branch back to its start");
+		}
+		ConstantPool pool = new ConstantPool();
+		Code code = new Code();
+		for (int reg = 0; reg < 16; reg++) {
+			code.op(ALOAD_1);
+			code.pushInt(pool, reg);
+			code.op(IALOAD);
+			code.local(ISTORE, TRACE_FIRST_REGISTER + reg);
+		}
+		code.op(ICONST_0);
+		code.local(ISTORE, TRACE_EXIT);
+
+		int loop = code.size();
+		Map<Integer, List<Integer>> guards = new LinkedHashMap<>(); // Exit pc to the guard jumps that go there
+		for (int p = 0; p < length; p++) {
+			int i = path[p] >>> 1;
+			boolean taken = (path[p] & 1) != 0;
+			if (program.opcode[i] == 1) { // Get
+				code.op(ALOAD_2);
+				code.pushInt(pool, program.dest[i]);
+				code.local(ILOAD, TRACE_FIRST_REGISTER + program.dest[i]);
+				code.op(INVOKEVIRTUAL);
+				code.u2(pool.methodRef(OUTPUTS_CLASS, "add", "(II)V"));
+				continue;
+			}
+			if (program.regWriteSrc[i] == 3 || (program.regWrite[i] == 0 && program.target[i] < 0)) { // Load, Store
+				code.op(ALOAD_3);
+				code.local(ILOAD, TRACE_FIRST_REGISTER + program.src1[i]);
+				code.pushInt(pool, program.src2[i]);
+				if (program.regWrite[i] != 0) {
+					code.op(INVOKEVIRTUAL);
+					code.u2(pool.methodRef(MEMORY_CLASS, "load", "(II)I"));
+					code.local(ISTORE, TRACE_FIRST_REGISTER + program.dest[i]);
+				} else {
+					code.local(ILOAD, TRACE_FIRST_REGISTER + program.dest[i]);
+					code.op(INVOKEVIRTUAL);
+					code.u2(pool.methodRef(MEMORY_CLASS, "store", "(III)V"));
+				}
+				continue;
+			}
+			if (program.regWrite[i] != 0) {
+				writeInstruction(code, pool, program, i, TRACE_FIRST_REGISTER);
+			}
+			if (program.target[i] < 0) {
+				continue;
+			}
+
+			// The branch, on its two registers or on the counter Loop just wrote
+			code.pushInt(pool, program.opcode[i]);
+			if (program.regWrite[i] != 0) {
+				code.local(ILOAD, TRACE_FIRST_REGISTER + program.dest[i]);
+				code.op(ICONST_0);
+			} else {
+				code.local(ILOAD, TRACE_FIRST_REGISTER + program.src1[i]);
+				code.local(ILOAD, TRACE_FIRST_REGISTER + program.src2[i]);
+			}
+			code.op(INVOKESTATIC);
+			code.u2(pool.methodRef(BRANCH_CLASS, "taken", "(III)Z"));
+			if (p == length - 1) {
+				code.op(IFNE);
+				code.u2(loop - code.size() + 1);
+				break;
+			}
+			int exit = taken ? i + 1 : program.target[i]; // Where it goes when it doesn't go the way it was recorded
+			guards.computeIfAbsent(exit, e -> new ArrayList<>()).add(code.size());
+			code.op(taken ? IFEQ : IFNE);
+			code.u2(0);
+		}
+
+		// Falling out of the bottom means the branch back wasn't taken, then the exits for each guard
+		List<Integer> frames = new ArrayList<>();
+		List<Integer> doneJumps = new ArrayList<>();
+		frames.add(loop);
+		writeExit(code, pool, (path[length - 1] >>> 1) + 1, doneJumps);
+		for (Map.Entry<Integer, List<Integer>> guard : guards.entrySet()) {
+			int stub = code.size();
+			frames.add(stub);
+			for (int jump : guard.getValue()) {
+				code.patch(jump + 1, stub - jump);
+			}
+			writeExit(code, pool, guard.getKey(), doneJumps);
+		}
+		int done = code.size();
+		frames.add(done);
+		for (int jump : doneJumps) {
+			code.patch(jump + 1, done - jump);
+		}
+		for (int reg = 0; reg < 16; reg++) {
+			code.op(ALOAD_1);
+			code.pushInt(pool, reg);
+			code.local(ILOAD, TRACE_FIRST_REGISTER + reg);
+			code.op(IASTORE);
+		}
+		code.local(ILOAD, TRACE_EXIT);
+		code.op(IRETURN);
+		if (code.size() > MAX_TRACE_CODE) {
+			throw new RuntimeException("Trace too long to compile: " + length + " instructions");
+		}
+
+		ByteArrayOutputStream methods = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = new DataOutputStream(methods);
+			writeConstructor(out, pool);
+			writeMethod(out, pool, 0x0001, "run", "([IL" + OUTPUTS_CLASS + ";L" + MEMORY_CLASS + ";)I", 4, TRACE_EXIT + 1, code,
+				traceFrames(pool, frames)); // ACC_PUBLIC
+			return writeClass(pool, TRACE_NAME, TRACE_CLASS, 2, methods);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void writeExit(Code code, ConstantPool pool, int exit, List<Integer> doneJumps) {
+		code.pushInt(pool, exit);
+		code.local(ISTORE, TRACE_EXIT);
+		doneJumps.add(code.size());
+		code.op(GOTO);
+		code.u2(0);
+	}
+
+	// Every jump target in a trace has the same locals (nothing changes type) and nothing on the stack, so each one
+	// gets the same full frame
+	private static byte[] traceFrames(ConstantPool pool, List<Integer> offsets) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeShort(offsets.size());
+		int previous = -1;
+		for (int offset : offsets) {
+			out.writeByte(FULL_FRAME);
+			out.writeShort(offset - previous - 1);
+			previous = offset;
+			out.writeShort(TRACE_EXIT + 1);
+			out.writeByte(ITEM_OBJECT);
+			out.writeShort(pool.classRef(TRACE_NAME));
+			out.writeByte(ITEM_OBJECT);
+			out.writeShort(pool.classRef("[I"));
+			out.writeByte(ITEM_OBJECT);
+			out.writeShort(pool.classRef(OUTPUTS_CLASS));
+			out.writeByte(ITEM_OBJECT);
+			out.writeShort(pool.classRef(MEMORY_CLASS));
+			for (int local = TRACE_FIRST_REGISTER; local <= TRACE_EXIT; local++) {
+				out.writeByte(ITEM_INTEGER);
+			}
+			out.writeShort(0); // Empty stack
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeConstructor(DataOutputStream out, ConstantPool pool) throws IOException {
+		Code code = new Code();
+		code.op(ALOAD_0);
+		code.op(INVOKESPECIAL);
+		code.u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+		code.op(RETURN);
+		writeMethod(out, pool, 0x0001, "<init>", "()V", 1, 1, code); // ACC_PUBLIC
+	}
+
+	private static void writeRun(DataOutputStream out, ConstantPool pool, int chunks, int outputs) throws IOException {
+		Code code = new Code();
+		code.pushInt(pool, outputs);
+		code.op(NEWARRAY);
+		code.op(T_INT);
+		code.op(ASTORE_2);
+		for (int c = 0; c < chunks; c++) {
+			code.op(ALOAD_1);
+			code.op(ALOAD_2);
+			code.op(INVOKESTATIC);
+			code.u2(pool.methodRef(CLASS_NAME, "chunk" + c, CHUNK_DESCRIPTOR));
+		}
+		code.op(ALOAD_2);
+		code.op(ARETURN);
+		writeMethod(out, pool, 0x0001, "run", "([I)[I", 2, 3, code); // ACC_PUBLIC
+	}
+
+	private static void writeChunk(DataOutputStream out, ConstantPool pool, Processor.DecodedProgram program, int chunk,
+	                               int from, int to, int slot) throws IOException {
+		Code code = new Code();
+
+		// Pull the registers into locals
+		for (int reg = 0; reg < 16; reg++) {
+			code.op(ALOAD_0);
+			code.pushInt(pool, reg);
+			code.op(IALOAD);
+			code.local(ISTORE, FIRST_REGISTER_LOCAL + reg);
+		}
+
+		for (int i = from; i < to; i++) {
+			if (program.opcode[i] == 1) { // Get
+				code.op(ALOAD_1);
+				code.pushInt(pool, slot++);
+				code.local(ILOAD, FIRST_REGISTER_LOCAL + program.dest[i]);
+				code.op(IASTORE);
+				continue;
+			}
+			writeInstruction(code, pool, program, i, FIRST_REGISTER_LOCAL);
+		}
+
+		// And write them back so the next chunk (or whoever called run) sees them
+		for (int reg = 0; reg < 16; reg++) {
+			code.op(ALOAD_0);
+			code.pushInt(pool, reg);
+			code.local(ILOAD, FIRST_REGISTER_LOCAL + reg);
+			code.op(IASTORE);
+		}
+		code.op(RETURN);
+		writeMethod(out, pool, 0x0008, "chunk" + chunk, CHUNK_DESCRIPTOR, 4, FIRST_REGISTER_LOCAL + 16, code); // ACC_STATIC
+	}
+
+	// Anything that writes a register: Set, Move, the ALU operations (Fma included) and Loop's count down
+	private static void writeInstruction(Code code, ConstantPool pool, Processor.DecodedProgram program, int i,
+	                                     int firstRegister) {
+		int src1 = firstRegister + program.src1[i];
+		if (program.regWriteSrc[i] == 1) { // Set
+			code.pushInt(pool, program.src2[i]);
+		} else if (program.regWriteSrc[i] == 2) { // Loop
+			code.local(ILOAD, src1);
+			code.op(INVOKESTATIC);
+			code.u2(pool.methodRef(BRANCH_CLASS, "countDown", "(I)I"));
+		} else if (program.aluOp[i] == 0) { // Move
+			code.local(ILOAD, src1);
+		} else if (program.aluOp[i] == 21) { // Fma
+			code.local(ILOAD, src1);
+			code.local(ILOAD, firstRegister + program.src2[i]);
+			code.local(ILOAD, firstRegister + program.src3[i]);
+			code.op(INVOKESTATIC);
+			code.u2(pool.methodRef(ALU_CLASS, "fusedMultiplyAdd", "(III)I"));
+		} else {
+			code.local(ILOAD, src1);
+			if (program.aluSrc[i] == 0) {
+				code.local(ILOAD, firstRegister + program.src2[i]);
+			} else {
+				code.pushInt(pool, program.src2[i]);
+			}
+			code.op(INVOKESTATIC);
+			code.u2(pool.methodRef(ALU_CLASS, ALU_METHODS[program.aluOp[i]], "(II)I"));
+		}
+		code.local(ISTORE, firstRegister + program.dest[i]);
+	}
+
+	private static void writeMethod(DataOutputStream out, ConstantPool pool, int access, String name, String descriptor,
+	                                int maxStack, int maxLocals, Code code) throws IOException {
+		writeMethod(out, pool, access, name, descriptor, maxStack, maxLocals, code, null);
+	}
+
+	// With a StackMapTable, which any method that jumps needs
+	private static void writeMethod(DataOutputStream out, ConstantPool pool, int access, String name, String descriptor,
+	                                int maxStack, int maxLocals, Code code, byte[] frames) throws IOException {
+		out.writeShort(access);
+		out.writeShort(pool.utf8(name));
+		out.writeShort(pool.utf8(descriptor));
+		out.writeShort(1); // Just the Code attribute
+		out.writeShort(pool.utf8("Code"));
+		out.writeInt(12 + code.size() + (frames == null ? 0 : 6 + frames.length));
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0); // No exception table
+		if (frames == null) {
+			out.writeShort(0); // No attributes on the code
+		} else {
+			out.writeShort(1);
+			out.writeShort(pool.utf8("StackMapTable"));
+			out.writeInt(frames.length);
+			out.write(frames);
+		}
+	}
+
+	// Growable bytecode buffer
+	private static class Code extends ByteArrayOutputStream {
+
+		void op(int opcode) {
+			write(opcode);
+		}
+
+		void u2(int value) {
+			write(value >>> 8);
+			write(value);
+		}
+
+		// Fills in a jump offset that wasn't known when the jump was written
+		void patch(int at, int value) {
+			buf[at] = (byte) (value >>> 8);
+			buf[at + 1] = (byte) value;
+		}
+
+		void local(int opcode, int index) {
+			write(opcode);
+			write(index);
+		}
+
+		// Picks the shortest way of pushing a constant
+		void pushInt(ConstantPool pool, int value) {
+			if (value >= 0 && value <= 5) {
+				write(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				write(BIPUSH);
+				write(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				write(SIPUSH);
+				u2(value);
+			} else {
+				write(LDC_W);
+				u2(pool.integer(value));
+			}
+		}
+	}
+
+	// Class file constant pool. Entries are shared, so asking for the same constant twice gives back the same index
+	private static class ConstantPool {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private int next = 1; // Index 0 isn't used by the class file format
+
+		int size() {
+			return next;
+		}
+
+		int utf8(String value) {
+			return add("U" + value, 1, () -> out.writeUTF(value));
+		}
+
+		int integer(int value) {
+			return add("I" + value, 3, () -> out.writeInt(value));
+		}
+
+		int classRef(String name) {
+			int nameIndex = utf8(name);
+			return add("C" + name, 7, () -> out.writeShort(nameIndex));
+		}
+
+		int methodRef(String owner, String name, String descriptor) {
+			int ownerIndex = classRef(owner);
+			int nameIndex = utf8(name);
+			int descriptorIndex = utf8(descriptor);
+			int nameAndType = add("N" + name + descriptor, 12, () -> {
+				out.writeShort(nameIndex);
+				out.writeShort(descriptorIndex);
+			});
+			return add("M" + owner + "." + name + descriptor, 10, () -> {
+				out.writeShort(ownerIndex);
+				out.writeShort(nameAndType);
+			});
+		}
+
+		void write(DataOutputStream cls) throws IOException {
+			cls.writeShort(next);
+			bytes.writeTo(cls);
+		}
+
+		private int add(String key, int tag, Entry entry) {
+			Integer index = indexes.get(key);
+			if (index != null) {
+				return index;
+			}
+			try {
+				out.writeByte(tag);
+				entry.write();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			indexes.put(key, next);
+			return next++;
+		}
+
+		private interface Entry {
+			void write() throws IOException;
+		}
+	}
+}
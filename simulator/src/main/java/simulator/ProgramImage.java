@@ -0,0 +1,157 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Binary form of an assembled Program, so that big programs don't have to be assembled again on every run.
+//
+// Layout, every field a big endian int:
+//   0   magic, "ECGR"
+//   4   format version
+//   8   number of instructions
+//   12  number of full precision Set immediates
+//   16  CRC32 of everything after the header
+//   20  reserved, zero
+//   32  the instructions
+//       then the instruction index of each full precision immediate, in increasing order
+//       then the full precision values, in the same order
+//
+// Loading maps the file, and the Program reads its instructions straight out of the mapping without copying them
+final class ProgramImage {
+
+	static final int MAGIC = 0x45434752;
+	static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int WRITE_BUFFER = 1 << 16;
+
+	private ProgramImage() {
+
+	}
+
+	static void write(Program program, Path path) throws IOException {
+		int length = program.length();
+		int[] wideIndexes = program.wideIndexes();
+		int[] wideValues = program.wideValues();
+		if ((long) HEADER_SIZE + 4L * (length + 2L * wideIndexes.length) > Integer.MAX_VALUE) {
+			throw new RuntimeException("Program too large for an image: " + length + " instructions");
+		}
+
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER);
+		try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.position(HEADER_SIZE); // Header goes in last, once the checksum is known
+			for (int i = 0; i < length; i++) {
+				putInt(out, buffer, crc, program.instruction(i));
+			}
+			for (int index : wideIndexes) {
+				putInt(out, buffer, crc, index);
+			}
+			for (int value : wideValues) {
+				putInt(out, buffer, crc, value);
+			}
+			writeBody(out, buffer, crc);
+
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(length).putInt(wideIndexes.length).putInt((int) crc.getValue());
+			while (buffer.position() < HEADER_SIZE) {
+				buffer.putInt(0);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer, buffer.position());
+			}
+		}
+	}
+
+	private static void putInt(FileChannel out, ByteBuffer buffer, CRC32 crc, int value) throws IOException {
+		if (!buffer.hasRemaining()) {
+			writeBody(out, buffer, crc);
+		}
+		buffer.putInt(value);
+	}
+
+	private static void writeBody(FileChannel out, ByteBuffer buffer, CRC32 crc) throws IOException {
+		buffer.flip();
+		crc.update(buffer.duplicate());
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	static Program load(Path path) throws IOException {
+		return load(path, true);
+	}
+
+	// Skipping the checksum makes loading take the same time whatever the size of the program, but is only safe for
+	// images that were written by this process or are otherwise trusted
+	static Program load(Path path, boolean verify) throws IOException {
+		MappedByteBuffer image;
+		try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = in.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new RuntimeException(path + " is not a program image");
+			}
+			image = in.map(FileChannel.MapMode.READ_ONLY, 0, size); // Stays valid after the channel is closed
+		}
+
+		return read(image, verify, path.toString());
+	}
+
+	// An image that's already in memory, for example one that came over a socket. The buffer is used as it is, so it
+	// mustn't be changed afterwards
+	static Program read(ByteBuffer image, boolean verify) {
+		return read(image, verify, "Image");
+	}
+
+	private static Program read(ByteBuffer image, boolean verify, String name) {
+		image = image.slice().order(ByteOrder.BIG_ENDIAN);
+		if (image.capacity() < HEADER_SIZE || image.getInt(0) != MAGIC) {
+			throw new RuntimeException(name + " is not a program image");
+		}
+		if (image.getInt(4) != VERSION) {
+			throw new RuntimeException(name + " is image version " + image.getInt(4) + ", expected " + VERSION);
+		}
+		int length = image.getInt(8);
+		int wide = image.getInt(12);
+		if (length < 0 || wide < 0 || (long) HEADER_SIZE + 4L * (length + 2L * wide) != image.capacity()) {
+			throw new RuntimeException(name + " is truncated or corrupt");
+		}
+		if (verify) {
+			CRC32 crc = new CRC32();
+			crc.update(image.slice(HEADER_SIZE, image.capacity() - HEADER_SIZE));
+			if ((int) crc.getValue() != image.getInt(16)) {
+				throw new RuntimeException(name + " failed its checksum");
+			}
+		}
+
+		IntBuffer instructions = image.slice(HEADER_SIZE, length * 4).asIntBuffer();
+		int[] wideIndexes = new int[wide];
+		int[] wideValues = new int[wide];
+		IntBuffer table = image.slice(HEADER_SIZE + length * 4, wide * 8).asIntBuffer();
+		table.get(wideIndexes).get(wideValues);
+		for (int i = 0; i < wide; i++) { // Program binary searches these, so they have to be in order
+			if (wideIndexes[i] < 0 || wideIndexes[i] >= length || (i > 0 && wideIndexes[i] <= wideIndexes[i - 1])) {
+				throw new RuntimeException(name + " has a corrupt immediate table");
+			}
+		}
+		return Program.wrap(instructions, wideIndexes, wideValues);
+	}
+
+	static boolean isImage(Path path) throws IOException {
+		try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			while (magic.hasRemaining() && in.read(magic) != -1) {
+				// Keep reading, a channel can return fewer bytes than asked for
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package simulator;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Rewrites an assembled program into a shorter one that gives exactly the same results. Goes between assembling a
+// program and handing it to a Processor.
+//
+// Three things get done, all on a def-use view of the 16 registers:
+//  - Constant folding: an instruction whose inputs are all known constants is worked out here, by the same ALU
+//    routines the engines use, and becomes a Set of the result. So the Set/Fdiv pairs in Program1 turn into one Set.
+//  - Copy propagation: after Move Rd, Rs later reads of Rd read Rs instead, for as long as neither is written again,
+//    which usually leaves the Move itself dead.
+//  - Dead write elimination: a write that nothing reads before the register is written again is dropped. At the end
+//    of the program every register counts as read if there are no Gets, since then the registers are the results.
+//
+// When asked to, it also fuses each Fmul that's straight away added to by an Fadd into one Fma, as long as nothing
+// else reads the product. That changes the results (Fma only rounds once, so they get closer to exact), which is why
+// it isn't done unless it's asked for.
+//
+// The starting registers are never assumed to be zero, so an optimized program is still right for a Processor that
+// gets started more than once. Gets are never moved or removed, so the outputs come out in the same order.
+//
+// All of this assumes the program runs straight through, so programs with branches are left as they are
+class ProgramOptimizer {
+
+	static final class Result {
+		final Program program;
+		final int originalLength;
+		final int folded;     // Instructions replaced by a Set of their result
+		final int copies;     // Register reads redirected past a Move
+		final int deadWrites; // Instructions removed because nothing read what they wrote
+		final int fused;      // Fmul/Fadd pairs turned into an Fma
+
+		private Result(Program program, int originalLength, int folded, int copies, int deadWrites, int fused) {
+			this.program = program;
+			this.originalLength = originalLength;
+			this.folded = folded;
+			this.copies = copies;
+			this.deadWrites = deadWrites;
+			this.fused = fused;
+		}
+
+		int removed() {
+			return originalLength - program.length();
+		}
+
+		void print(PrintStream out) {
+			out.printf("Removed %d of %d instructions (%.1f%%): %d folded to constants, %d reads copy propagated, %d dead writes%n",
+				removed(), originalLength, originalLength == 0 ? 0 : 100.0 * removed() / originalLength, folded, copies,
+				deadWrites);
+			if (fused > 0) {
+				out.printf("Fused %d Fmul/Fadd pairs into Fma%n", fused);
+			}
+		}
+	}
+
+	private static final int SET = 0, GET = 1, MOVE = 2, FADD = 3, FMUL = 6, ROUND = 10, FMA = 30;
+
+	static Result optimize(Program program) {
+		return optimize(program, false);
+	}
+
+	static Result optimize(Program program, boolean fuse) {
+		Processor.DecodedProgram d = Processor.DecodedProgram.decode(program);
+		if (d.hasBranches() || d.usesMemory()) {
+			return new Result(program, d.length, 0, 0, 0, 0);
+		}
+		for (int i = 0; i < d.length; i++) {
+			if (d.opcode[i] >= Assembler.INSTRUCTION_NAMES.length) { // Would fail when it runs, so leave it to do that
+				return new Result(program, d.length, 0, 0, 0, 0);
+			}
+		}
+		int originalLength = d.length;
+		int fused = 0;
+		if (fuse) {
+			Program fusedProgram = fuse(program, d);
+			fused = d.length - fusedProgram.length();
+			program = fusedProgram;
+			d = Processor.DecodedProgram.decode(program);
+		}
+
+		int[] instructions = program.instructions();
+		int[] src1 = d.src1.clone(); // Sources after copy propagation
+		int[] src2 = d.src2.clone();
+		int[] src3 = d.src3.clone();
+		boolean[] folded = new boolean[d.length];
+		int[] foldedValue = new int[d.length];
+		int foldedCount = 0, copies = 0;
+
+		// Forwards: what each register holds at each point. Either a known constant, a copy of another register that
+		// hasn't changed since, or neither
+		boolean[] known = new boolean[16];
+		int[] value = new int[16];
+		int[] copyOf = new int[16];
+		Arrays.fill(copyOf, -1);
+		for (int i = 0; i < d.length; i++) {
+			int dest = d.dest[i];
+			if (d.opcode[i] == GET) {
+				if (copyOf[dest] != -1) {
+					instructions[i] = instructions[i] & ~(0xF << 23) | copyOf[dest] << 23;
+					copies++;
+				}
+				continue;
+			}
+
+			if (d.readsSrc1(i) && copyOf[src1[i]] != -1) {
+				src1[i] = copyOf[src1[i]];
+				copies++;
+			}
+			if (d.readsSrc2(i) && copyOf[src2[i]] != -1) {
+				src2[i] = copyOf[src2[i]];
+				copies++;
+			}
+			if (d.readsSrc3(i) && copyOf[src3[i]] != -1) {
+				src3[i] = copyOf[src3[i]];
+				copies++;
+			}
+
+			boolean constant;
+			int result = 0;
+			if (d.opcode[i] == SET) {
+				constant = true;
+				result = d.src2[i];
+			} else {
+				constant = known[src1[i]] && (!d.readsSrc2(i) || known[src2[i]]) && (!d.readsSrc3(i) || known[src3[i]]);
+				if (constant && d.opcode[i] == ROUND && (value[src1[i]] & 0x7F800000) == 0) {
+					constant = false; // Round loops 2^31 times on zeros and subnormals, let the program pay for that itself
+				}
+				if (constant) {
+					int b = d.aluSrc[i] != 0 ? d.src2[i] : value[src2[i]];
+					result = Processor.ArithmeticLogicUnit.compute(d.aluOp[i], value[src1[i]], b, value[src3[i]]);
+					folded[i] = true;
+					foldedValue[i] = result;
+					foldedCount++;
+				}
+			}
+
+			// The write ends every copy of the old value, then records what the register holds now
+			for (int r = 0; r < 16; r++) {
+				if (copyOf[r] == dest) {
+					copyOf[r] = -1;
+				}
+			}
+			known[dest] = constant;
+			value[dest] = result;
+			copyOf[dest] = !constant && d.opcode[i] == MOVE && src1[i] != dest ? src1[i] : -1;
+		}
+
+		// Backwards: drop writes to registers that aren't live. Folded instructions don't read anything any more,
+		// which is what lets the instructions that fed them go too
+		boolean hasGet = false;
+		for (int i = 0; i < d.length && !hasGet; i++) {
+			hasGet = d.opcode[i] == GET;
+		}
+		boolean[] live = new boolean[16];
+		Arrays.fill(live, !hasGet);
+		boolean[] keep = new boolean[d.length];
+		int deadWrites = 0;
+		for (int i = d.length - 1; i >= 0; i--) {
+			if (d.opcode[i] == GET) {
+				live[instructions[i] >>> 23 & 0xF] = true; // The dest may have been copy propagated
+				keep[i] = true;
+				continue;
+			}
+			int dest = d.dest[i];
+			boolean copyToItself = !folded[i] && d.opcode[i] == MOVE && src1[i] == dest;
+			if (!live[dest] || copyToItself) {
+				deadWrites++;
+				continue;
+			}
+			keep[i] = true;
+			live[dest] = false;
+			if (!folded[i] && d.readsSrc1(i)) {
+				live[src1[i]] = true;
+			}
+			if (!folded[i] && d.readsSrc2(i)) {
+				live[src2[i]] = true;
+			}
+			if (!folded[i] && d.readsSrc3(i)) {
+				live[src3[i]] = true;
+			}
+		}
+
+		Program.Builder optimized = new Program.Builder();
+		for (int i = 0; i < d.length; i++) {
+			if (!keep[i]) {
+				if (folded[i]) {
+					foldedCount--; // Only count the ones that are still there
+				}
+				continue;
+			}
+			if (folded[i]) {
+				addSet(optimized, d.dest[i], foldedValue[i]);
+			} else if (d.opcode[i] == SET) {
+				if (program.hasWideImmediate(i)) {
+					optimized.add(instructions[i], program.wideImmediate(i));
+				} else {
+					optimized.add(instructions[i]);
+				}
+			} else if (d.opcode[i] == GET) {
+				optimized.add(instructions[i]);
+			} else {
+				int instruction = instructions[i] & ~(0xF << 19) | src1[i] << 19;
+				if (d.readsSrc2(i)) {
+					instruction = instruction & ~(0xF << 15) | src2[i] << 15;
+				}
+				if (d.readsSrc3(i)) {
+					instruction = instruction & ~(0xF << 11) | src3[i] << 11;
+				}
+				optimized.add(instruction);
+			}
+		}
+		return new Result(optimized.build(), originalLength, foldedCount, copies, deadWrites, fused);
+	}
+
+	// Fmul Rt, Ra, Rb followed by Fadd Rd, Rt, Rc (either way round) becomes Fma Rd, Ra, Rb, Rc, if Rt isn't read
+	// again before it's written, or is Rd anyway. Only next door pairs, so nothing in between can change Ra or Rb
+	private static Program fuse(Program program, Processor.DecodedProgram d) {
+		boolean hasGet = false;
+		for (int i = 0; i < d.length && !hasGet; i++) {
+			hasGet = d.opcode[i] == GET;
+		}
+		int[] liveAfter = new int[d.length]; // Registers read later on, one bit each
+		int live = hasGet ? 0 : 0xFFFF;
+		for (int i = d.length - 1; i >= 0; i--) {
+			liveAfter[i] = live;
+			if (d.writesDest(i)) {
+				live &= ~(1 << d.dest[i]);
+			}
+			live |= (d.readsSrc1(i) ? 1 << d.src1[i] : 0) | (d.readsSrc2(i) ? 1 << d.src2[i] : 0)
+				| (d.readsSrc3(i) ? 1 << d.src3[i] : 0) | (d.readsDest(i) ? 1 << d.dest[i] : 0);
+		}
+
+		Program.Builder fused = new Program.Builder();
+		for (int i = 0; i < d.length; i++) {
+			if (i + 1 < d.length && d.opcode[i] == FMUL && d.opcode[i + 1] == FADD) {
+				int product = d.dest[i], add = i + 1;
+				boolean first = d.src1[add] == product, second = d.src2[add] == product;
+				if (first != second && (d.dest[add] == product || (liveAfter[add] & 1 << product) == 0)) {
+					int addend = first ? d.src2[add] : d.src1[add];
+					fused.add(FMA << 27 | d.dest[add] << 23 | d.src1[i] << 19 | d.src2[i] << 15 | addend << 11);
+					i++;
+					continue;
+				}
+			}
+			if (program.hasWideImmediate(i)) {
+				fused.add(program.instruction(i), program.wideImmediate(i));
+			} else {
+				fused.add(program.instruction(i));
+			}
+		}
+		return fused.build();
+	}
+
+	// Uses the custom 23 bit format when it holds the value exactly, otherwise the full precision work around
+	private static void addSet(Program.Builder program, int dest, int bits) {
+		int exponent = ((bits & 0x7F800000) >>> 23) - 112;
+		int sign = (bits >>> 9) & 0x400000;
+		int custom = sign | (exponent << 17) & 0x3E0000 | (bits >>> 7) & 0x1FFFF;
+		int instruction = SET << 27 | dest << 23 | custom;
+		if (exponent < 0 || exponent > 31 || (bits & 0x7F) != 0) {
+			program.add(instruction, bits);
+		} else {
+			program.add(instruction);
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package simulator;
+
+// The original versions of ALU operations that have since been rewritten, kept as the reference that the tests (and
+// ReferenceAluBenchmark) compare the new ones against. Only correct where noted
+class ReferenceAlu {
+
+	private ReferenceAlu() {
+
+	}
+
+	// Loops over every bit that gets shifted out
+	static int sticky(int val, int shift) {
+		int sticky = 0;
+		for (int i=0; i < shift; i++) {
+			if (sticky != 1) {
+				sticky = (val >>> i) & 1;
+			}
+		}
+		return sticky;
+	}
+	
+	// Finds the normalization shift by checking one bit position at a time
+	static int addition(int a, int b) {
+		// Quick exiting for any special cases
+		// Adding with NaN
+		if (a == 0xFFFFFFFF || b == 0xFFFFFFFF || a == 0x7FFFFFFF || b == 0x7FFFFFFF) {
+			return 0xFFFFFFFF;
+		}
+
+		// Adding with (+/-)infinity
+		if (a == 0x7f800000 || b == 0x7f800000 || a == 0xff800000 || b == 0xff800000) {
+			return 0xFFFFFFFF;
+		}
+		
+		// Adding with zero
+		if (a == 0 || a == 0x80000000) {
+			return b;
+		}
+		if (b == 0 || b == 0x80000000) {
+			return a;
+		}
+		
+		// Adding with the negation of the other value
+		if (a == (b ^ 0x80000000)) {
+			return 0;
+		}
+		
+		int sumSign, sumExp, sumMant;
+		int signA = a & 0x80000000;
+		int signB = b & 0x80000000;
+		int expA = a & 0x7F800000;
+		int expB = b & 0x7F800000;
+		int mantissaA = (a & 0x007FFFFF) | 0x00800000; // Add the implicit one to both mantissa
+		int mantissaB = (b & 0x007FFFFF) | 0x00800000;
+		int grBits = 0; // Guard and round bits
+		int stickyBit = 0; // Sticky bit is separate for ease of use
+		boolean agrsBits = false; // If the grs bits belong to the 'a' mantissa
+		
+		// Rewrite smaller number to have the same exponent as the larger one
+		if (expA > expB) {
+			int difference = (expA >>> 23) - (expB >>> 23);
+			grBits = (mantissaB >>> difference-3);
+			stickyBit = sticky(mantissaB, difference);
+			mantissaB >>>= difference;
+			sumExp = expA;
+		} else { // Also catches the case of them being equal, but it doesn't matter because the difference would be zero
+			int difference = (expB >>> 23) - (expA >>> 23);
+			grBits = (mantissaA >>> difference-3);
+			stickyBit = sticky(mantissaA, difference);
+			mantissaA >>>= difference;
+			sumExp = expB;
+			agrsBits = true;
+		}
+		
+		if (signA == signB) { // Both are either negative or positive
+			sumMant = mantissaA + mantissaB;
+			sumSign = signA;
+			if ((grBits | stickyBit) > 4) { // Regardless of where they belong, the grs bits are added if they round
+				sumMant += 1;
+			}
+		} else { // Both are different
+			if (signA < signB) { // A is negative, B isn't
+				sumMant = -mantissaA + mantissaB;
+				if (agrsBits && (grBits | stickyBit) >= 4) { // If the grs bits belong to the negative mantissa and they round up, then we need to subtract one as well
+					sumMant -= 1;
+					grBits = 0;
+				} else if ((grBits | stickyBit) > 4) { // If they belong to the positive mantissa we need to add
+					sumMant += 1;
+					grBits = 0;
+				}
+				
+			} else {             // B is negative, A isn't
+				sumMant = mantissaA - mantissaB;
+				if (!agrsBits && (grBits | stickyBit) >= 4) { // Same as above, just reversed
+					sumMant -= 1;
+					grBits = 0;
+				} else if ((grBits | stickyBit) > 4) {
+					sumMant += 1;
+					grBits = 0;
+				}
+			}
+			
+			if (sumMant < 0) {
+				// If the result of adding the mantissas together is negative, then the
+				// sign bit needs to be set
+				sumSign = 0x80000000;
+				sumMant =  Math.abs(sumMant);
+			} else { // If it's still positive, then the sign bit is zero
+				sumSign = 0x00000000;
+			}
+		}
+		
+		// Check if sum is normal, if not, then normalize it
+		if (sumMant >>> 23 == 0) { // Leading zero, need to left shift
+			for (int i=22; i>0; i--) { // Find how much the mantissa needs to be shifted to normalize it
+				if (sumMant >>> i == 1) {
+					sumMant = (sumMant << (23-i)) & 0x007FFFFF; // Normalize mantissa and remove implicit 1
+					grBits = (grBits << (23-i)) & 6;
+					sumExp -= (23-i) << 23; // Add the correct change to the exponent
+					break;
+				}
+			}
+		} else if (sumMant >>> 23 > 1) {
+			for (int i=1; i<9; i++) { // Find how much the mantissa needs to be shifted to normalize it
+				if (sumMant >>> (23+i) == 1) {
+					stickyBit |= sticky(sumMant, (23-i)) | sticky(grBits, (23-i)); // Check if sticky bit ends up enabled from the shift
+					sumMant = (sumMant >>> i) & 0x007FFFFF; // Normalize mantissa and remove implicit 1
+					grBits = (grBits >>> (23-i - 3)); // Shift the rounding bits by the same amount
+					sumExp += i << 23; // Add the correct change to the exponent
+					break;
+				}
+			}
+		}
+		// Check for too large or too small numbers
+		if ((sumExp >>> 23)-127 < -126 || (sumExp >>> 23)-127 > 127) {
+			return 0xFFFFFFFF; // Return NaN
+		}
+
+		int sum = (sumExp & 0x7FE00000) | (sumMant & 0x007FFFFF); // Integer addition will propagate through this properly if needed
+		
+		// For the midpoint, round "down" if negative, truncate if positive
+		if ((grBits | stickyBit) > 4 || ((grBits | stickyBit) == 4 && sumSign != 0)) {
+			sum += 1;
+		}
+		// Nothing needs to be done for truncation
+
+		if ((sum & 0x80000000) != 0) { // Value overflowed during rounding
+			return 0xFFFFFFFF;
+		}
+		
+		return (sumSign & 0x80000000) |  sum; // Add in the sign to the existing sum
+	}
+	
+	// Builds the product out of host floats. Only matches IEEE multiplication when both inputs are in [1, 2^23),
+	// and loops about 2^31 times when either input is zero
+	static int multiplication(int a, int b) {
+		// Multiplying with NaN
+		if (a == 0xFFFFFFFF || b == 0xFFFFFFFF || a == 0x7FFFFFFF || b == 0x7FFFFFFF)
+			return 0xFFFFFFFF;
+		
+		// Multiplying with (+/-)infinity
+		if (a == 0x7F800000 || b == 0x7F800000)
+			return 0x7F800000;
+		else if (a == 0xFF800000 || b == 0xFF800000)
+			return 0xFF800000;
+		
+		int signProd, expProd = 0;
+		long mantissaProd = 0;
+		int signA = a & 0x80000000;
+		int signB = b & 0x80000000;
+		int expA = a & 0x7F800000;
+		int expB = b & 0x7F800000;
+		long mantissaA = (a & 0x007FFFFF) | 0x00800000;
+		long mantissaB = (b & 0x007FFFFF) | 0x00800000;
+		float[] fractionsA = new float[23];
+		float[] fractionsB = new float[23];
+		
+		signProd = signA ^ signB;
+		
+		expProd = expA + expB - 0x3F800000;
+		
+		for (int i = 0; i < (int) ((23 - Math.log(Float.intBitsToFloat(expA)) / Math.log(2))); i++){
+			fractionsA[22] = fractionsA[21];
+			fractionsA[21] = fractionsA[20];
+			fractionsA[20] = fractionsA[19];
+			fractionsA[19] = fractionsA[18];
+			fractionsA[18] = fractionsA[17];
+			fractionsA[17] = fractionsA[16];
+			fractionsA[16] = fractionsA[15];
+			fractionsA[15] = fractionsA[14];
+			fractionsA[14] = fractionsA[13];
+			fractionsA[13] = fractionsA[12];
+			fractionsA[12] = fractionsA[11];
+			fractionsA[11] = fractionsA[10];
+			fractionsA[10] = fractionsA[9];
+			fractionsA[9] = fractionsA[8];
+			fractionsA[8] = fractionsA[7];
+			fractionsA[7] = fractionsA[6];
+			fractionsA[6] = fractionsA[5];
+			fractionsA[5] = fractionsA[4];
+			fractionsA[4] = fractionsA[3];
+			fractionsA[3] = fractionsA[2];
+			fractionsA[2] = fractionsA[1];
+			fractionsA[1] = fractionsA[0];
+			fractionsA[0] = mantissaA & 0x00000001;
+			
+			mantissaA >>= 1;
+		}
+		
+		for (int i = 0; i < (int) ((23 - Math.log(Float.intBitsToFloat(expB)) / Math.log(2))); i++){
+			fractionsB[22] = fractionsB[21];
+			fractionsB[21] = fractionsB[20];
+			fractionsB[20] = fractionsB[19];
+			fractionsB[19] = fractionsB[18];
+			fractionsB[18] = fractionsB[17];
+			fractionsB[17] = fractionsB[16];
+			fractionsB[16] = fractionsB[15];
+			fractionsB[15] = fractionsB[14];
+			fractionsB[14] = fractionsB[13];
+			fractionsB[13] = fractionsB[12];
+			fractionsB[12] = fractionsB[11];
+			fractionsB[11] = fractionsB[10];
+			fractionsB[10] = fractionsB[9];
+			fractionsB[9] = fractionsB[8];
+			fractionsB[8] = fractionsB[7];
+			fractionsB[7] = fractionsB[6];
+			fractionsB[6] = fractionsB[5];
+			fractionsB[5] = fractionsB[4];
+			fractionsB[4] = fractionsB[3];
+			fractionsB[3] = fractionsB[2];
+			fractionsB[2] = fractionsB[1];
+			fractionsB[1] = fractionsB[0];
+			fractionsB[0] = mantissaB & 0x00000001;
+			
+			mantissaB >>= 1;
+		}
+		
+		float numA = mantissaA;
+		float numB = mantissaB;
+		
+		for (int i = 0; i < 23; i++){
+			fractionsA[i] *= Math.pow(2, -(i + 1));
+			numA += fractionsA[i];
+			fractionsB[i] *= Math.pow(2, -(i + 1));
+			numB += fractionsB[i];
+		}
+		
+		float integerProd = numA * numB;
+		
+		if (integerProd >= Float.intBitsToFloat(expProd) * 2){
+			expProd >>= 23;
+			expProd++;
+			expProd <<= 23;
+		}
+		
+		mantissaProd = Float.floatToIntBits(integerProd);
+		
+		mantissaProd &= 0x007FFFFF;
+		
+		return signProd | expProd | (int) mantissaProd;
+	}
+	
+	// 12 term Taylor series. The factorial overflows an int past 12!, so the later terms are garbage
+	static int sine(int a, int b) {
+		float x = Float.intBitsToFloat(a);
+		float result = 0;
+		
+		for (int i = 0; i < 12; i++) {
+			result += pow(-1, i) * (pow(x, 2*i+1) / factorial(2*i + 1));
+		}
+		
+		return Float.floatToIntBits(result);
+	}
+	
+	static int cosine(int a, int b) {
+		float x = Float.intBitsToFloat(a);
+		float result = 0;
+		
+		for (int i = 0; i < 12; i++) {
+			result += pow(-1, i) * (pow(x, 2*i) / factorial(2*i));
+		}
+		
+		return Float.floatToIntBits(result);
+	}
+	
+	// Runs both series again
+	static int tangent(int a, int b) {
+		return Float.floatToIntBits(Float.intBitsToFloat(sine(a, b)) / Float.intBitsToFloat(cosine(a, b)));
+	}
+	
+	static int exponent(int a, int b) {
+		float x = Float.intBitsToFloat(a);
+		float result = 0;
+		
+		for (int i = 0; i < 12; i++) {
+			result += pow(x, i) / factorial(i);
+		}
+		
+		return Float.floatToIntBits(result);
+	}
+	
+	// Various math functions
+	static int factorial(int num) {
+		int result = 1;
+		for(int i = 2; i <= num; i++) {
+			result *= i;
+		}
+		return result;
+	}
+	
+	static float pow(float num, int power) {
+		if (power < 0) {
+			throw new RuntimeException("Custom power function does not support negative powers");
+		}
+		
+		if (power == 0) {
+			return 1;
+		}
+		
+		float sum = num;
+		for (int i = 1; i < power; i++) {
+			sum *= num;
+		}
+		
+		return sum;
+	}
+}
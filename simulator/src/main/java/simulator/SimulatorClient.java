@@ -0,0 +1,175 @@
+package simulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+// One connection to a SimulatorServer, see there for the protocol. Requests on a connection go one at a time, open
+// more connections to have more than one running at once
+class SimulatorClient implements AutoCloseable {
+
+	// What came back for one request. Busy means the server turned it away and nothing ran
+	static final class Response {
+		final boolean busy;
+		final int[] outputs;   // Each Get in order, or the final registers if there weren't any Gets
+		final int[] registers; // Final registers
+		final String error;    // Null unless the program failed
+
+		private Response(boolean busy, int[] outputs, int[] registers, String error) {
+			this.busy = busy;
+			this.outputs = outputs;
+			this.registers = registers;
+			this.error = error;
+		}
+	}
+
+	private final SocketChannel channel;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	SimulatorClient(SocketAddress address) throws IOException {
+		channel = SocketChannel.open(address instanceof UnixDomainSocketAddress ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+		channel.connect(address);
+		in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+		out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+	}
+
+	// kind is SimulatorServer.SOURCE or IMAGE. A null engine leaves it up to the server
+	Response run(byte kind, byte[] program, Processor.Engine engine, int[] registers) throws IOException {
+		out.writeInt(2 + 64 + program.length);
+		out.writeByte(kind);
+		out.writeByte(engine == null ? SimulatorServer.DEFAULT_ENGINE : engine.ordinal());
+		for (int reg = 0; reg < 16; reg++) {
+			out.writeInt(registers[reg]);
+		}
+		out.write(program);
+		out.flush();
+
+		int[] outputs = new int[16];
+		int gets = 0;
+		while (true) {
+			byte type = in.readByte();
+			switch (type) {
+				case SimulatorServer.RESULT:
+					in.readInt(); // Register
+					if (gets == outputs.length) {
+						outputs = Arrays.copyOf(outputs, gets * 2);
+					}
+					outputs[gets++] = in.readInt();
+					break;
+				case SimulatorServer.DONE:
+					if (in.readInt() != gets) {
+						throw new IOException("Server sent " + gets + " results but says there were more");
+					}
+					int[] finalRegisters = new int[16];
+					for (int reg = 0; reg < 16; reg++) {
+						finalRegisters[reg] = in.readInt();
+					}
+					return new Response(false, gets == 0 ? finalRegisters : Arrays.copyOf(outputs, gets), finalRegisters, null);
+				case SimulatorServer.ERROR:
+					return new Response(false, null, null, in.readUTF());
+				case SimulatorServer.BUSY:
+					in.readUTF();
+					return new Response(true, null, null, null);
+				default:
+					throw new IOException("Unknown frame type " + type);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// Load generator: keeps a number of connections sending the same program with random registers for a while, then
+	// reports throughput and latency percentiles. Busy responses are counted but not retried
+	// Usage: SimulatorClient <port | socket path> <program> [connections] [seconds] [engine]
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2 || args.length > 5) {
+			System.out.println("Usage: SimulatorClient <port | socket path> <program> [connections] [seconds] [engine]");
+			return;
+		}
+		SocketAddress address = SimulatorServer.address(args[0]);
+		Path file = Files.exists(Paths.get(args[1])) ? Paths.get(args[1]) : Paths.get("Program" + args[1] + ".txt");
+		byte kind = ProgramImage.isImage(file) ? SimulatorServer.IMAGE : SimulatorServer.SOURCE;
+		byte[] program = Files.readAllBytes(file);
+		int connections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+		Processor.Engine engine = args.length > 4 ? Processor.Engine.valueOf(args[4].toUpperCase()) : null;
+
+		LongAdder busy = new LongAdder();
+		LongAdder errors = new LongAdder();
+		List<long[]> latencies = new ArrayList<>(); // Nanoseconds, one array per connection
+		List<Thread> threads = new ArrayList<>();
+		long start = System.nanoTime();
+		long end = start + (long) (seconds * 1e9);
+		for (int c = 0; c < connections; c++) {
+			long[][] mine = new long[1][1024];
+			int[] count = new int[1];
+			long seed = c;
+			Thread thread = new Thread(() -> {
+				Random random = new Random(seed);
+				int[] registers = new int[16];
+				try (SimulatorClient client = new SimulatorClient(address)) {
+					while (System.nanoTime() < end) {
+						for (int reg = 0; reg < 16; reg++) {
+							registers[reg] = Float.floatToIntBits(random.nextFloat() * 100);
+						}
+						long sent = System.nanoTime();
+						Response response = client.run(kind, program, engine, registers);
+						long took = System.nanoTime() - sent;
+						if (response.busy) {
+							busy.increment();
+						} else if (response.error != null) {
+							errors.increment();
+						} else {
+							if (count[0] == mine[0].length) {
+								mine[0] = Arrays.copyOf(mine[0], count[0] * 2);
+							}
+							mine[0][count[0]++] = took;
+						}
+					}
+				} catch (IOException e) {
+					System.err.println("Connection failed: " + e.getMessage());
+				}
+				synchronized (latencies) {
+					latencies.add(Arrays.copyOf(mine[0], count[0]));
+				}
+			}, "load-" + c);
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+		System.out.printf("%d requests in %.1f s over %d connections: %.0f requests/s, %d busy, %d failed%n", all.length,
+			elapsed, connections, all.length / elapsed, busy.sum(), errors.sum());
+		if (all.length > 0) {
+			System.out.printf("latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n", percentile(all, 0.5),
+				percentile(all, 0.9), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e3);
+		}
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[(int) Math.max(0, Math.ceil(fraction * sorted.length) - 1)] / 1e3;
+	}
+}
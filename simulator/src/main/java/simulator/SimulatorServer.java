@@ -0,0 +1,303 @@
+package simulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps one JVM running and serves program runs over a local socket, so each run doesn't pay for starting the JVM
+// and warming up the JIT. Programs go through a ProgramCache, so a program that's sent again reuses its compiled
+// kernel.
+//
+// The protocol is a stream of frames, all big endian. A client sends a request and reads frames back until it gets a
+// DONE, ERROR or BUSY, then it can send the next request on the same connection:
+//
+//   request   int    length of the rest of the frame
+//             byte   SOURCE (assembly text, UTF-8) or IMAGE (a program image, see ProgramImage)
+//             byte   engine ordinal, or DEFAULT_ENGINE for whatever the server was started with
+//             int    x16 starting registers, as float bits
+//             byte[] the program
+//
+//   RESULT    byte 1, int register, int value   one for each Get, in order, as the program runs
+//   DONE      byte 0, int gets, int x16 registers   the final registers, which are the results if there were no Gets
+//   ERROR     byte 2, UTF message   the request was bad or the program failed, the connection stays open
+//   BUSY      byte 3, UTF message   too many requests waiting already, try again later
+//
+// Each connection gets its own thread, but only maxRunning programs run at once and at most maxWaiting more wait for
+// a turn. Anything past that is turned away with BUSY straight away, so a flood of requests can't pile up inside the
+// server. New connections past maxConnections wait in the socket's accept backlog.
+//
+// This would be a virtual thread per request on JDK 21. On 17 connections get a platform thread each, which is why
+// they're limited separately from running programs
+class SimulatorServer implements AutoCloseable {
+
+	static final byte SOURCE = 0, IMAGE = 1, DEFAULT_ENGINE = -1;
+	static final byte DONE = 0, RESULT = 1, ERROR = 2, BUSY = 3;
+
+	private final ServerSocketChannel server;
+	private final SocketAddress address;
+	private final Processor.Engine engine;
+	private final int maxRequestBytes;
+	private final ProgramCache cache;
+	private final Semaphore connections;
+	private final Semaphore running;
+	private final int maxInFlight; // Running plus waiting
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final ExecutorService threads = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "simulator-connection");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	SimulatorServer(SocketAddress address, Processor.Engine engine, int maxConnections, int maxRunning, int maxWaiting,
+	                int maxRequestBytes, long cacheInstructions) throws IOException {
+		this.engine = engine;
+		this.maxRequestBytes = maxRequestBytes;
+		maxInFlight = maxRunning + maxWaiting;
+		connections = new Semaphore(maxConnections);
+		running = new Semaphore(maxRunning, true); // Fair, so waiting requests run in the order they came in
+		cache = new ProgramCache(cacheInstructions);
+		if (address instanceof UnixDomainSocketAddress) {
+			Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath()); // Left over from a server that didn't stop cleanly
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		} else {
+			server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+		}
+		server.bind(address, maxConnections);
+		this.address = server.getLocalAddress(); // Has the real port if it was given as 0
+	}
+
+	// Either a TCP port on the loopback address, or the path of a Unix domain socket
+	static SocketAddress address(String where) {
+		try {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(where));
+		} catch (NumberFormatException e) {
+			return UnixDomainSocketAddress.of(where);
+		}
+	}
+
+	SocketAddress address() {
+		return address;
+	}
+
+	// Accepts connections until the server is closed
+	void serve() throws IOException {
+		while (true) {
+			connections.acquireUninterruptibly();
+			SocketChannel connection;
+			try {
+				connection = server.accept();
+			} catch (ClosedChannelException e) {
+				return;
+			}
+			if (connection.getLocalAddress() instanceof InetSocketAddress) {
+				connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			threads.execute(() -> {
+				try (SocketChannel c = connection) {
+					handle(c);
+				} catch (IOException | UncheckedIOException e) {
+					// The client went away, nothing to tell it
+				} finally {
+					connections.release();
+				}
+			});
+		}
+	}
+
+	private void handle(SocketChannel connection) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection), 1 << 16));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection), 1 << 16));
+		while (true) {
+			int length;
+			try {
+				length = in.readInt();
+			} catch (EOFException e) {
+				return; // Closed between requests
+			}
+			if (length < 2 + 64 || length > maxRequestBytes) {
+				error(out, ERROR, "Bad request length " + length + ", the limit is " + maxRequestBytes + " bytes");
+				return; // Can't find the start of the next frame after this
+			}
+			byte kind = in.readByte();
+			byte engineOrdinal = in.readByte();
+			int[] registers = new int[16];
+			for (int reg = 0; reg < 16; reg++) {
+				registers[reg] = in.readInt();
+			}
+			byte[] payload = new byte[length - 2 - 64];
+			in.readFully(payload);
+			requests.increment();
+
+			if (inFlight.incrementAndGet() > maxInFlight) {
+				inFlight.decrementAndGet();
+				rejected.increment();
+				error(out, BUSY, "Server busy");
+				continue;
+			}
+			running.acquireUninterruptibly();
+			try {
+				run(kind, engineOrdinal, registers, payload, out);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			} catch (RuntimeException e) {
+				failed.increment();
+				error(out, ERROR, e.getMessage() == null ? e.toString() : e.getMessage());
+			} finally {
+				running.release();
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+
+	private void run(byte kind, byte engineOrdinal, int[] registers, byte[] payload, DataOutputStream out) throws IOException {
+		ProgramCache.Entry entry;
+		if (kind == SOURCE) {
+			entry = cache.get(new String(payload, StandardCharsets.UTF_8));
+		} else if (kind == IMAGE) {
+			entry = cache.get(ByteBuffer.wrap(payload));
+		} else {
+			throw new RuntimeException("Unknown program kind " + kind);
+		}
+		Processor.Engine runWith = engine;
+		if (engineOrdinal != DEFAULT_ENGINE) {
+			if (engineOrdinal < 0 || engineOrdinal >= Processor.Engine.values().length) {
+				throw new RuntimeException("Unknown engine " + engineOrdinal);
+			}
+			runWith = Processor.Engine.values()[engineOrdinal];
+		}
+
+		Processor processor = entry.processor(runWith);
+		processor.setRegisters(registers);
+		Streaming tracer = new Streaming(out);
+		processor.setTracer(tracer);
+		processor.start();
+
+		int[] finalRegisters = processor.registers();
+		out.writeByte(DONE);
+		out.writeInt(tracer.gets);
+		for (int value : finalRegisters) {
+			out.writeInt(value);
+		}
+		out.flush();
+	}
+
+	private static void error(DataOutputStream out, byte type, String message) throws IOException {
+		out.writeByte(type);
+		out.writeUTF(message);
+		out.flush();
+	}
+
+	// Sends every Get back as soon as the engine reports it. The output is buffered, so they go out a buffer at a time
+	private static final class Streaming implements Tracer {
+		private final DataOutputStream out;
+		int gets = 0;
+
+		Streaming(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public Level level() {
+			return Level.RESULTS;
+		}
+
+		@Override
+		public void result(int reg, int value) {
+			try {
+				out.writeByte(RESULT);
+				out.writeInt(reg);
+				out.writeInt(value);
+				gets++;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void instruction(int count, int rr1, int rr2, int wr, int wd) {
+
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SimulatorServer[" + address + ", " + requests.sum() + " requests, " + rejected.sum() + " busy, "
+			+ failed.sum() + " failed, " + cache + "]";
+	}
+
+	// Stops the accept loop. Only the first call does anything, so a shutdown hook and the code that started the server
+	// can both call it
+	@Override
+	public void close() throws IOException {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		server.close();
+		threads.shutdownNow();
+		if (address instanceof UnixDomainSocketAddress) {
+			Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+		}
+	}
+
+	// Usage: SimulatorServer <port | socket path> [engine]
+	// Limits come from -Dsimulator.server.connections, .running, .waiting, .maxRequest (bytes) and .cache (instructions)
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.out.println("Usage: SimulatorServer <port | socket path> [engine]");
+			return;
+		}
+		Processor.Engine engine = args.length == 2 ? Processor.Engine.valueOf(args[1].toUpperCase()) : Processor.Engine.COMPILED;
+		int cores = Runtime.getRuntime().availableProcessors();
+		SimulatorServer server = new SimulatorServer(address(args[0]), engine,
+			Integer.getInteger("simulator.server.connections", 256),
+			Integer.getInteger("simulator.server.running", cores),
+			Integer.getInteger("simulator.server.waiting", 64 * cores),
+			Integer.getInteger("simulator.server.maxRequest", 64 << 20),
+			Long.getLong("simulator.server.cache", 10_000_000));
+		// On Ctrl-C the hook stops the accept loop, then gives this thread a moment to print the totals before the JVM goes
+		Thread mainThread = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+				mainThread.join(2000);
+			} catch (IOException | InterruptedException e) {
+				// Exiting anyway
+			}
+		}));
+		try {
+			System.out.println("Listening on " + server.address() + ", running programs on the " + engine.name().toLowerCase() + " engine");
+			server.serve();
+		} finally {
+			server.close();
+		}
+		System.out.println(server);
+	}
+}
@@ -0,0 +1,364 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Uses a program as a kernel over a stream of inputs. Each element of the stream is loaded into the input registers
+// (the rest start at zero), the program runs, and whatever it Gets is one element of the output stream. Elements are
+// independent of each other, since the registers are reset every time.
+//
+// Nothing is ever collected: one element goes in, one comes out, so memory stays the same however long the stream is.
+// The input can be an Iterator, a Flow.Publisher (through processor(), which passes the subscriber's demand straight
+// upstream) or a file of raw floats (transform(), for files too big to want to read into memory).
+//
+// Float files are just big endian floats back to back, one record after another with no header
+class StreamingKernel {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ProgramCompiler.Kernel kernel;
+	private final int[] inputRegisters;
+
+	StreamingKernel(Program program, int... inputRegisters) {
+		this(program, Processor.Engine.COMPILED, inputRegisters);
+	}
+
+	// Straight line programs get the engine's kernel: threaded, compiled (for checked too) or dataflow, and threaded
+	// for the engines that don't have one. Programs with branches get a TracingEngine, which only compiles its loops
+	// for compiled and checked
+	StreamingKernel(Program program, Processor.Engine engine, int... inputRegisters) {
+		Processor.DecodedProgram decoded = Processor.DecodedProgram.decode(program);
+		if (decoded.usesMemory()) {
+			throw new RuntimeException("Kernels can't run programs with Load or Store, there's no data segment to give them");
+		}
+		for (int reg : inputRegisters) {
+			if (reg < 0 || reg > 15) {
+				throw new RuntimeException("No register R" + reg);
+			}
+			if (!readsBeforeWriting(decoded, reg)) {
+				throw new RuntimeException("The program never reads R" + reg + " before setting it, so the input would be ignored");
+			}
+		}
+		kernel = Processor.kernel(decoded, engine);
+		this.inputRegisters = inputRegisters.clone();
+	}
+
+	private static boolean readsBeforeWriting(Processor.DecodedProgram program, int reg) {
+		boolean hasGet = false;
+		for (int i = 0; i < program.length; i++) {
+			if ((program.readsSrc1(i) && program.src1[i] == reg) || (program.readsSrc2(i) && program.src2[i] == reg)
+				|| (program.readsSrc3(i) && program.src3[i] == reg) || (program.readsDest(i) && program.dest[i] == reg)) {
+				return true;
+			}
+			if (program.writesDest(i) && program.dest[i] == reg) {
+				return false;
+			}
+			hasGet |= program.opcode[i] == 1;
+		}
+		return !hasGet; // Never touched, but the registers are the output
+	}
+
+	int inputs() {
+		return inputRegisters.length;
+	}
+
+	// Runs the program once. The array has a value for each input register, in order
+	float[] apply(float[] inputs) {
+		int[] outputs = run(inputs, new int[16]);
+		float[] values = new float[outputs.length];
+		for (int i = 0; i < outputs.length; i++) {
+			values[i] = Float.intBitsToFloat(outputs[i]);
+		}
+		return values;
+	}
+
+	private int[] run(float[] inputs, int[] registers) {
+		if (inputs.length != inputRegisters.length) {
+			throw new RuntimeException("Expected " + inputRegisters.length + " inputs, got " + inputs.length);
+		}
+		Arrays.fill(registers, 0);
+		for (int i = 0; i < inputRegisters.length; i++) {
+			registers[inputRegisters[i]] = Float.floatToRawIntBits(inputs[i]);
+		}
+		int[] outputs = kernel.run(registers);
+		return outputs.length == 0 ? registers : outputs;
+	}
+
+	// Lazy, each output is worked out when it's asked for
+	Iterator<float[]> map(Iterator<float[]> inputs) {
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return inputs.hasNext();
+			}
+
+			@Override
+			public float[] next() {
+				return apply(inputs.next());
+			}
+		};
+	}
+
+	// A new stage for a Flow pipeline. It takes one upstream and one downstream subscriber, and since every input
+	// makes exactly one output it just asks upstream for as many inputs as downstream has asked for outputs. There's
+	// no buffer, so a slow subscriber slows the publisher down rather than anything piling up in between
+	Flow.Processor<float[], float[]> processor() {
+		return new Stage();
+	}
+
+	private final class Stage implements Flow.Processor<float[], float[]> {
+		private final AtomicLong pending = new AtomicLong(); // Requested by downstream before upstream was there
+		private volatile Flow.Subscription upstream;
+		private volatile Flow.Subscriber<? super float[]> downstream;
+		private volatile boolean done;
+		// An empty or failed publisher can finish before anything has subscribed to the stage, so the end is kept
+		// until there's a downstream to pass it to
+		private volatile boolean completed;
+		private volatile Throwable failure;
+		private final AtomicBoolean finished = new AtomicBoolean(); // Passed on the end
+
+		@Override
+		public void subscribe(Flow.Subscriber<? super float[]> subscriber) {
+			if (downstream != null) {
+				subscriber.onSubscribe(new Flow.Subscription() {
+					@Override
+					public void request(long n) {
+
+					}
+
+					@Override
+					public void cancel() {
+
+					}
+				});
+				subscriber.onError(new IllegalStateException("A kernel stage only takes one subscriber"));
+				return;
+			}
+			downstream = subscriber;
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					if (n <= 0) {
+						cancel();
+						subscriber.onError(new IllegalArgumentException("Requested " + n + " elements, has to be positive"));
+						return;
+					}
+					Flow.Subscription up = upstream;
+					if (up != null) {
+						up.request(n);
+					} else {
+						pending.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b); // Saturates, like the spec wants
+						forwardPending();
+					}
+				}
+
+				@Override
+				public void cancel() {
+					done = true;
+					Flow.Subscription up = upstream;
+					if (up != null) {
+						up.cancel();
+					}
+				}
+			});
+			finish();
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			if (upstream != null) {
+				subscription.cancel(); // Already have a publisher
+				return;
+			}
+			upstream = subscription;
+			if (done) {
+				subscription.cancel();
+				return;
+			}
+			forwardPending();
+		}
+
+		// Whichever of request() and onSubscribe() comes second passes on what was asked for before
+		private void forwardPending() {
+			Flow.Subscription up = upstream;
+			if (up != null) {
+				long n = pending.getAndSet(0);
+				if (n > 0) {
+					up.request(n);
+				}
+			}
+		}
+
+		@Override
+		public void onNext(float[] item) {
+			if (done) {
+				return;
+			}
+			float[] output;
+			try {
+				output = apply(item);
+			} catch (RuntimeException e) {
+				done = true;
+				upstream.cancel();
+				failure = e;
+				finish();
+				return;
+			}
+			downstream.onNext(output);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (!done) {
+				done = true;
+				failure = throwable;
+				finish();
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (!done) {
+				done = true;
+				completed = true;
+				finish();
+			}
+		}
+
+		// Called once the end has arrived and once there's a downstream, whichever order they come in. Only the first
+		// call that has both passes it on
+		private void finish() {
+			Flow.Subscriber<? super float[]> subscriber = downstream;
+			Throwable error = failure;
+			if (subscriber == null || (error == null && !completed) || !finished.compareAndSet(false, true)) {
+				return;
+			}
+			if (error != null) {
+				subscriber.onError(error);
+			} else {
+				subscriber.onComplete();
+			}
+		}
+	}
+
+	// Records from a float file, read a buffer at a time. Close it if it isn't read to the end
+	static final class FloatReader implements Iterator<float[]>, AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final int width;
+		private boolean eof = false;
+
+		FloatReader(Path file, int width) throws IOException {
+			if (width < 1 || width * 4 > BUFFER_SIZE) {
+				throw new RuntimeException("Bad record width " + width);
+			}
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			this.width = width;
+			buffer.flip(); // Starts empty
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (buffer.remaining() < width * 4 && !eof) {
+					buffer.compact();
+					eof = channel.read(buffer) == -1;
+					buffer.flip();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Unable to read float file", e);
+			}
+			if (buffer.remaining() >= width * 4) {
+				return true;
+			}
+			if (buffer.hasRemaining()) {
+				throw new RuntimeException("Float file ends part way through a record");
+			}
+			return false;
+		}
+
+		@Override
+		public float[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			float[] record = new float[width];
+			for (int i = 0; i < width; i++) {
+				record[i] = buffer.getFloat();
+			}
+			return record;
+		}
+
+		// Same as next, without making a new array
+		void next(float[] record) {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			for (int i = 0; i < width; i++) {
+				record[i] = buffer.getFloat();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	// Runs every record of a float file through the program and writes the outputs to another one, a buffer at a
+	// time either way. Returns the number of records
+	long transform(Path input, Path output) throws IOException {
+		long records = 0;
+		float[] inputs = new float[inputRegisters.length];
+		int[] registers = new int[16];
+		ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		try (FloatReader reader = new FloatReader(input, inputRegisters.length);
+		     FileChannel writer = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+			     StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (reader.hasNext()) {
+				reader.next(inputs);
+				for (int value : run(inputs, registers)) {
+					if (!out.hasRemaining()) {
+						write(writer, out);
+					}
+					out.putInt(value);
+				}
+				records++;
+			}
+			write(writer, out);
+		}
+		return records;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	// Usage: StreamingKernel <program> <input floats> <output floats> <input registers, like 1,2>
+	public static void main(String[] args) throws IOException {
+		if (args.length != 4) {
+			System.out.println("Usage: StreamingKernel <program> <input floats> <output floats> <input registers, like 1,2>");
+			return;
+		}
+		int[] registers = Arrays.stream(args[3].split(",")).mapToInt(r -> Integer.parseInt(r.trim().replaceFirst("^[Rr]", ""))).toArray();
+		StreamingKernel kernel = new StreamingKernel(Main.load(args[0]), registers);
+		long start = System.nanoTime();
+		long records = kernel.transform(Paths.get(args[1]), Paths.get(args[2]));
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d records in %.2f s, %.0f records/s%n", records, seconds, records / seconds);
+	}
+}
@@ -0,0 +1,82 @@
+package simulator;
+
+// Second execution engine. Every decoded instruction is turned into its own small handler object with the register
+// numbers already bound in, so running the program is just walking the handler array. There is no shared ALU or
+// register file state to set up between instructions, and each handler only ever does one thing, which lets the JIT
+// inline the ALU routine straight into it
+class ThreadedEngine implements ProgramCompiler.Kernel {
+	
+	interface Handler {
+		void run(int[] registers, int[] outputs);
+	}
+	
+	private final Handler[] handlers;
+	private final int outputCount;
+	
+	ThreadedEngine(Processor.DecodedProgram program) {
+		if (program.hasBranches() || program.usesMemory()) {
+			throw new RuntimeException("Programs with branches or Load/Store run on a TracingEngine");
+		}
+		handlers = new Handler[program.length];
+		int outputs = 0;
+		for (int i = 0; i < program.length; i++) {
+			if (program.opcode[i] == 1) {
+				handlers[i] = get(program.dest[i], outputs++);
+			} else {
+				handlers[i] = compile(program, i);
+			}
+		}
+		outputCount = outputs;
+	}
+	
+	public int[] run(int[] registers) {
+		int[] outputs = new int[outputCount];
+		for (Handler handler : handlers) {
+			handler.run(registers, outputs);
+		}
+		return outputs;
+	}
+	
+	static Handler get(int reg, int slot) {
+		return (r, out) -> out[slot] = r[reg];
+	}
+	
+	// Also used by DataflowScheduler to build the chains it runs
+	static Handler compile(Processor.DecodedProgram program, int i) {
+		int d = program.dest[i];
+		int s1 = program.src1[i];
+		int s2 = program.src2[i];
+		
+		if (program.regWriteSrc[i] != 0) { // Set, the decoder already worked out the value
+			return (r, out) -> r[d] = s2;
+		}
+		// The unary operations never look at their second input, so those handlers don't bother reading it
+		switch (program.aluOp[i]) {
+			case 0:  return (r, out) -> r[d] = r[s1];
+			case 1:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.addition(r[s1], r[s2]);
+			case 2:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.subtraction(r[s1], r[s2]);
+			case 3:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.negate(r[s1], 0);
+			case 4:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.multiplication(r[s1], r[s2]);
+			case 5:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.division(r[s1], r[s2]);
+			case 6:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.floor(r[s1], 0);
+			case 7:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.ceiling(r[s1], 0);
+			case 8:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.round(r[s1], 0);
+			case 9:  return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.absolute(r[s1], 0);
+			case 10: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.inverse(r[s1], 0);
+			case 11: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.minimum(r[s1], r[s2]);
+			case 12: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.maximum(r[s1], r[s2]);
+			case 13: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.power(r[s1], s2); // Pow is I type, src2 is the immediate itself
+			case 14: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.sine(r[s1], 0);
+			case 15: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.cosine(r[s1], 0);
+			case 16: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.tangent(r[s1], 0);
+			case 17: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.exponent(r[s1], 0);
+			case 18: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.logarithm(r[s1], 0);
+			case 19: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.squareRoot(r[s1], 0);
+			case 20: return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.registerPower(r[s1], r[s2]);
+			case 21:
+				int s3 = program.src3[i];
+				return (r, out) -> r[d] = Processor.ArithmeticLogicUnit.fusedMultiplyAdd(r[s1], r[s2], r[s3]);
+		}
+		throw new RuntimeException("Invalid aluOps value: " + program.aluOp[i]);
+	}
+}
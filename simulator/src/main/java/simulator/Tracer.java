@@ -0,0 +1,212 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+// Where the Processor sends its trace of what it's doing. Everything is passed as plain ints so that tracing doesn't
+// allocate anything unless the tracer itself decides to. Only the decoded and structural engines trace individual
+// instructions, the threaded and compiled ones only report their results
+interface Tracer {
+
+	enum Level {
+		OFF,          // Nothing at all
+		RESULTS,      // The value of every Get
+		INSTRUCTIONS, // The value written back by every instruction
+		DATAPATH      // Plus the register file inputs (RR1, RR2, WR, WD) for every instruction
+	}
+
+	Tracer OFF = new Tracer() {
+		@Override
+		public Level level() {
+			return Level.OFF;
+		}
+
+		@Override
+		public void result(int reg, int value) {
+
+		}
+
+		@Override
+		public void instruction(int count, int rr1, int rr2, int wr, int wd) {
+
+		}
+	};
+
+	Level level();
+
+	void result(int reg, int value);
+
+	// count is the number of the instruction in the trace, starting from one
+	void instruction(int count, int rr1, int rr2, int wr, int wd);
+
+	default void flush() {
+
+	}
+
+	// Formats a single line of the trace. Used by both of the tracers that actually write something
+	static void format(StringBuilder line, Level level, int count, int rr1, int rr2, int wr, int wd) {
+		line.append(Main.rightPad(Main.rightPad(count + ":", 4) + Float.intBitsToFloat(wd), 17)).append("-> R").append(wr);
+		if (level == Level.DATAPATH) {
+			line.append("    RR1=").append(rr1).append(" RR2=").append(rr2).append(" WR=").append(wr)
+				.append(" WD=0x").append(Integer.toHexString(wd));
+		}
+	}
+
+	// Prints each line straight away. Simple, but every line goes through the (synchronized) stream
+	class Printing implements Tracer {
+		private final Level level;
+		private final PrintStream out;
+		private final StringBuilder line = new StringBuilder();
+
+		Printing(Level level, PrintStream out) {
+			this.level = level;
+			this.out = out;
+		}
+
+		@Override
+		public Level level() {
+			return level;
+		}
+
+		@Override
+		public void result(int reg, int value) {
+			out.println("Get R" + reg + ": " + Float.intBitsToFloat(value));
+		}
+
+		@Override
+		public void instruction(int count, int rr1, int rr2, int wr, int wd) {
+			line.setLength(0);
+			format(line, level, count, rr1, rr2, wr, wd);
+			out.println(line);
+		}
+	}
+
+	// Copies each event into a ring buffer and returns straight away, and a background thread formats and writes
+	// them out. If the writer falls behind the processor waits for space instead of dropping anything.
+	// Only one thread may trace into it at a time
+	class Buffered implements Tracer, AutoCloseable {
+		private static final int RECORD = 6; // Kind, count, rr1, rr2, wr, wd
+		private static final int RESULT = 0, INSTRUCTION = 1;
+
+		private final Level level;
+		private final Writer out;
+		private final int[] ring;
+		private final int mask;
+		private final Thread drainer;
+
+		// Both only ever increase, the slot is the value masked by the ring size
+		private volatile long written = 0;
+		private volatile long read = 0;
+		private volatile boolean closed = false;
+		private volatile Exception failure; // Why the drainer stopped, if it couldn't write
+
+		// records is rounded up to a power of two
+		Buffered(Level level, Writer out, int records) {
+			this.level = level;
+			this.out = out;
+			int size = Integer.highestOneBit(Math.max(1, records - 1)) << 1;
+			ring = new int[size * RECORD];
+			mask = size - 1;
+			drainer = new Thread(this::drain, "trace-writer");
+			drainer.setDaemon(true);
+			drainer.start();
+		}
+
+		@Override
+		public Level level() {
+			return level;
+		}
+
+		@Override
+		public void result(int reg, int value) {
+			put(RESULT, 0, 0, 0, reg, value);
+		}
+
+		@Override
+		public void instruction(int count, int rr1, int rr2, int wr, int wd) {
+			put(INSTRUCTION, count, rr1, rr2, wr, wd);
+		}
+
+		private void put(int kind, int count, int rr1, int rr2, int wr, int wd) {
+			long slot = written;
+			while (slot - read > mask) { // Full, let the writer catch up
+				if (!drainer.isAlive()) {
+					throw stopped(); // Nothing is going to make room
+				}
+				Thread.yield();
+			}
+			int base = (int) (slot & mask) * RECORD;
+			ring[base] = kind;
+			ring[base + 1] = count;
+			ring[base + 2] = rr1;
+			ring[base + 3] = rr2;
+			ring[base + 4] = wr;
+			ring[base + 5] = wd;
+			written = slot + 1; // Volatile write publishes the record to the drainer
+		}
+
+		// Waits until everything traced so far has been written out
+		@Override
+		public void flush() {
+			long target = written;
+			while (read < target && drainer.isAlive()) {
+				LockSupport.parkNanos(10000);
+			}
+			if (read < target) {
+				throw stopped();
+			}
+			try {
+				out.flush();
+			} catch (IOException e) {
+				throw new RuntimeException("Unable to write trace", e);
+			}
+		}
+
+		@Override
+		public void close() {
+			flush();
+			closed = true;
+			LockSupport.unpark(drainer);
+			try {
+				drainer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private RuntimeException stopped() {
+			return new RuntimeException("Trace writer stopped, " + (written - read) + " records not written", failure);
+		}
+
+		private void drain() {
+			StringBuilder line = new StringBuilder();
+			try {
+				while (!closed || read < written) {
+					long available = written;
+					if (read == available) {
+						out.flush();
+						LockSupport.parkNanos(100000);
+						continue;
+					}
+					for (long slot = read; slot < available; slot++) {
+						int base = (int) (slot & mask) * RECORD;
+						line.setLength(0);
+						if (ring[base] == RESULT) {
+							line.append("Get R").append(ring[base + 4]).append(": ").append(Float.intBitsToFloat(ring[base + 5]));
+						} else {
+							format(line, level, ring[base + 1], ring[base + 2], ring[base + 3], ring[base + 4], ring[base + 5]);
+						}
+						line.append(System.lineSeparator());
+						out.append(line);
+					}
+					read = available; // Hands the slots back to the processor
+				}
+				out.flush();
+			} catch (IOException | RuntimeException e) {
+				failure = e; // The tracing thread throws it the next time it has to wait
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Runs programs that have branches or Load/Store, which the threaded and compiled engines can't since they assume
+// every instruction runs once, in order, and only touches registers. It's an interpreter over the decoded program with a tracing tier on top:
+//
+//  - Every time a backward branch is taken, the loop header it goes to gets a little hotter.
+//  - Once a header has been gone back to hotLoop times, the next trip around the loop is recorded: every instruction
+//    that runs from the header until a branch goes back to it, and which way each branch went.
+//  - That path is compiled to bytecode by ProgramCompiler.compileTrace, with every branch in it turned into a guard.
+//    From then on, getting to the header runs the trace instead, which keeps going around the loop until a guard fails
+//    or the loop ends, and tells the interpreter where to carry on.
+//
+// So a loop costs about the same per instruction as straight line compiled code, and an if inside the loop only costs
+// anything when it goes the other way to when it was recorded. Recordings longer than MAX_TRACE instructions (an
+// inner loop that got unrolled into its outer one, usually) are given up on, and after a few of those the loop is
+// just interpreted.
+//
+// Like the other kernels one can be shared between threads. The heat counts are racy on purpose, losing the odd
+// increment only makes a loop get compiled a little later
+class TracingEngine implements ProgramCompiler.Kernel {
+
+	// Backward branches to a header before its loop gets compiled. Change it with -Dsimulator.hotLoop=<n>
+	static final int HOT_LOOP = Integer.getInteger("simulator.hotLoop", 50);
+	static final int MAX_TRACE = 1024; // Instructions in one trip around a loop
+	private static final int MAX_ATTEMPTS = 3; // Failed recordings before a loop is left to the interpreter
+
+	// A compiled loop. Runs from the loop header with the registers in the array, and returns the pc to go on from
+	interface Trace {
+		int run(int[] registers, Outputs outputs, DataSegment memory);
+	}
+
+	// The result of every Get, and which register it came from, in the order they ran
+	static final class Outputs {
+		private int[] values = new int[16];
+		private int[] registers = new int[16];
+		private int size = 0;
+
+		void add(int reg, int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+				registers = Arrays.copyOf(registers, size * 2);
+			}
+			registers[size] = reg;
+			values[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int value(int i) {
+			return values[i];
+		}
+
+		int register(int i) {
+			return registers[i];
+		}
+
+		int[] values() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	private final Processor.DecodedProgram program;
+	private final boolean compile;
+	private final int hotLoop;
+	private final AtomicReferenceArray<Trace> traces; // By loop header
+	private final int[] heat;
+	private final int[] attempts;
+	private final AtomicInteger compiled = new AtomicInteger();
+
+	TracingEngine(Processor.DecodedProgram program) {
+		this(program, true);
+	}
+
+	// Without compile it's only the interpreter
+	TracingEngine(Processor.DecodedProgram program, boolean compile) {
+		this(program, compile, HOT_LOOP);
+	}
+
+	TracingEngine(Processor.DecodedProgram program, boolean compile, int hotLoop) {
+		this.program = program;
+		this.compile = compile;
+		this.hotLoop = hotLoop;
+		traces = new AtomicReferenceArray<>(program.length);
+		heat = new int[program.length];
+		attempts = new int[program.length];
+	}
+
+	// Number of loops that have been compiled so far
+	int traces() {
+		return compiled.get();
+	}
+
+	// Only for programs without Load or Store, there's no data segment to give them
+	@Override
+	public int[] run(int[] registers) {
+		return execute(registers, null).values();
+	}
+
+	Outputs execute(int[] registers, DataSegment memory) {
+		if (memory == null && program.usesMemory()) {
+			throw new RuntimeException("The program uses Load or Store, but there's no data segment");
+		}
+		Outputs outputs = new Outputs();
+		Processor.DecodedProgram d = program;
+		int recording = -1; // Header of the loop being recorded, if there is one
+		int[] path = null;
+		int recorded = 0;
+
+		int pc = 0;
+		while (pc < d.length) {
+			int next = pc + 1;
+			boolean taken = false;
+			if (d.opcode[pc] == 1) { // Get
+				outputs.add(d.dest[pc], registers[d.dest[pc]]);
+			} else if (d.regWrite[pc] == 0) { // Compare and branch, or Store
+				if (d.target[pc] < 0) {
+					memory.store(registers[d.src1[pc]], d.src2[pc], registers[d.dest[pc]]);
+				} else {
+					taken = Processor.BranchUnit.taken(d.opcode[pc], registers[d.src1[pc]], registers[d.src2[pc]]);
+				}
+			} else {
+				int wd;
+				if (d.regWriteSrc[pc] == 0) {
+					int b = d.aluSrc[pc] == 0 ? registers[d.src2[pc]] : d.src2[pc];
+					wd = Processor.ArithmeticLogicUnit.compute(d.aluOp[pc], registers[d.src1[pc]], b, registers[d.src3[pc]]);
+				} else if (d.regWriteSrc[pc] == 1) {
+					wd = d.src2[pc];
+				} else if (d.regWriteSrc[pc] == 2) {
+					wd = Processor.BranchUnit.countDown(registers[d.src1[pc]]);
+				} else {
+					wd = memory.load(registers[d.src1[pc]], d.src2[pc]);
+				}
+				registers[d.dest[pc]] = wd;
+				taken = d.target[pc] >= 0 && Processor.BranchUnit.taken(d.opcode[pc], wd, 0);
+			}
+			if (taken) {
+				next = d.target[pc];
+			}
+
+			if (recording != -1) {
+				path[recorded++] = pc << 1 | (taken ? 1 : 0);
+				if (taken && next == recording) { // Back at the start, that's the whole loop
+					install(recording, path, recorded);
+					recording = -1;
+				} else if (recorded == MAX_TRACE) {
+					attempts[recording]++;
+					recording = -1;
+				}
+			} else if (taken && next <= pc) { // A backward branch, so next is a loop header
+				Trace trace = traces.get(next);
+				if (trace != null) {
+					next = trace.run(registers, outputs, memory);
+				} else if (compile && attempts[next] < MAX_ATTEMPTS && ++heat[next] >= hotLoop) {
+					heat[next] = 0;
+					recording = next;
+					recorded = 0;
+					if (path == null) {
+						path = new int[MAX_TRACE];
+					}
+				}
+			}
+			pc = next;
+		}
+		if (recording != -1) {
+			attempts[recording]++; // The program ended part way round
+		}
+		return outputs;
+	}
+
+	private void install(int header, int[] path, int length) {
+		try {
+			if (traces.compareAndSet(header, null, ProgramCompiler.compileTrace(program, path, length))) {
+				compiled.incrementAndGet();
+			}
+		} catch (RuntimeException e) {
+			attempts[header] = MAX_ATTEMPTS; // Same loop would just fail the same way again
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package simulator;
+
+// Sin, Cos, Tan and Exp for the ALU. Each one reduces the argument into a small range around zero first, then
+// evaluates a fixed polynomial in Horner form in double precision, so the float result is almost always correctly
+// rounded (TranscendentalUnitTest holds it to one ulp of StrictMath).
+//
+// Sin and Cos reduce by multiples of pi/2: x = k*pi/2 + r with |r| <= pi/4, then pick sin(r) or cos(r) and the
+// sign from the quadrant k. Tan works out both of those once and divides them.
+// Exp reduces by multiples of ln(2): x = k*ln(2) + r with |r| <= ln(2)/2, so e^x = 2^k * e^r
+class TranscendentalUnit {
+
+	// pi/2 split into three parts (from fdlibm), the first two with enough trailing zeros that k * part is exact,
+	// which keeps the reduction accurate for |x| up to about 2^20
+	private static final double PIO2_1 = 1.57079632673412561417e+00;
+	private static final double PIO2_2 = 6.07710050630396597660e-11;
+	private static final double PIO2_3 = 2.02226624879595063154e-21;
+	private static final double TWO_OVER_PI = 6.36619772367581382433e-01;
+	private static final double MAX_REDUCIBLE = 1 << 20; // Past this the Cody-Waite reduction starts losing bits
+
+	private static final double LN2_HI = 6.93147180369123816490e-01;
+	private static final double LN2_LO = 1.90821492927058770002e-10;
+	private static final double INV_LN2 = 1.44269504088896338700e+00;
+	private static final float EXP_OVERFLOW = 88.72284f;   // Anything larger is infinity in single precision
+	private static final float EXP_UNDERFLOW = -103.97208f; // Anything smaller rounds to zero even as a subnormal
+
+	// Taylor coefficients, highest power first for Horner's method. Truncating after these terms leaves an error
+	// below 2^-52 over the reduced ranges, far under what single precision can see
+	// sin(r) = r * (1 + r^2 * SIN[...]), cos(r) = 1 + r^2 * COS[...]
+	private static final double[] SIN = {
+		-1.0 / 1307674368000.0, 1.0 / 6227020800.0, -1.0 / 39916800.0, 1.0 / 362880.0, -1.0 / 5040.0, 1.0 / 120.0,
+		-1.0 / 6.0};
+	private static final double[] COS = {
+		1.0 / 20922789888000.0, -1.0 / 87178291200.0, 1.0 / 479001600.0, -1.0 / 3628800.0, 1.0 / 40320.0, -1.0 / 720.0,
+		1.0 / 24.0, -1.0 / 2.0};
+	// e^r = 1 + r * (1 + r * EXP[...])
+	private static final double[] EXP = {
+		1.0 / 479001600.0, 1.0 / 39916800.0, 1.0 / 3628800.0, 1.0 / 362880.0, 1.0 / 40320.0, 1.0 / 5040.0,
+		1.0 / 720.0, 1.0 / 120.0, 1.0 / 24.0, 1.0 / 6.0, 1.0 / 2.0};
+
+	private TranscendentalUnit() {
+
+	}
+
+	static int sine(int a) {
+		double x = Float.intBitsToFloat(a);
+		if (Math.abs(x) > MAX_REDUCIBLE || Double.isNaN(x)) {
+			return Float.floatToIntBits((float) StrictMath.sin(x));
+		}
+		int k = quadrant(x);
+		double r = reduce(x, k);
+		double result = (k & 1) == 0 ? sinKernel(r) : cosKernel(r);
+		return Float.floatToIntBits((float) ((k & 2) == 0 ? result : -result));
+	}
+
+	static int cosine(int a) {
+		double x = Float.intBitsToFloat(a);
+		if (Math.abs(x) > MAX_REDUCIBLE || Double.isNaN(x)) {
+			return Float.floatToIntBits((float) StrictMath.cos(x));
+		}
+		int k = quadrant(x);
+		double r = reduce(x, k);
+		double result = (k & 1) == 0 ? cosKernel(r) : sinKernel(r);
+		return Float.floatToIntBits((float) (((k + 1) & 2) == 0 ? result : -result));
+	}
+
+	// Both polynomials are evaluated exactly once, then divided in whichever order the quadrant needs
+	static int tangent(int a) {
+		double x = Float.intBitsToFloat(a);
+		if (Math.abs(x) > MAX_REDUCIBLE || Double.isNaN(x)) {
+			return Float.floatToIntBits((float) StrictMath.tan(x));
+		}
+		int k = quadrant(x);
+		double r = reduce(x, k);
+		double sin = sinKernel(r);
+		double cos = cosKernel(r);
+		return Float.floatToIntBits((float) ((k & 1) == 0 ? sin / cos : -cos / sin));
+	}
+
+	static int exponent(int a) {
+		float x = Float.intBitsToFloat(a);
+		if (Float.isNaN(x)) {
+			return Float.floatToIntBits(x);
+		}
+		if (x > EXP_OVERFLOW) {
+			return 0x7F800000;
+		}
+		if (x < EXP_UNDERFLOW) {
+			return 0;
+		}
+
+		int k = (int) Math.rint(x * INV_LN2);
+		double r = (x - k * LN2_HI) - k * LN2_LO;
+		double result = 1 + r * (1 + r * horner(EXP, r));
+		return Float.floatToIntBits((float) Math.scalb(result, k));
+	}
+
+	// Which multiple of pi/2 is closest to x
+	private static int quadrant(double x) {
+		return (int) Math.rint(x * TWO_OVER_PI);
+	}
+
+	private static double reduce(double x, int k) {
+		return ((x - k * PIO2_1) - k * PIO2_2) - k * PIO2_3;
+	}
+
+	private static double sinKernel(double r) {
+		double r2 = r * r;
+		return r + r * r2 * horner(SIN, r2);
+	}
+
+	private static double cosKernel(double r) {
+		double r2 = r * r;
+		return 1 + r2 * horner(COS, r2);
+	}
+
+	private static double horner(double[] coefficients, double x) {
+		double result = coefficients[0];
+		for (int i = 1; i < coefficients.length; i++) {
+			result = result * x + coefficients[i];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,196 @@
+package simulator;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD versions of the ALU operations that map cleanly onto vector hardware, for use by the batch processor.
+// Every operation here gives exactly the same bits as the matching ArithmeticLogicUnit method, including its quirks
+// (see the notes in addition). Needs the incubating vector module: --add-modules jdk.incubator.vector
+class VectorLanes {
+
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+	private static final int SIGN = 0x80000000;
+	private static final int CANONICAL_NAN = 0x7FC00000; // What Float.floatToIntBits turns every NaN into
+
+	private VectorLanes() {
+
+	}
+
+	// Returns false without touching dest if the operation doesn't have a vector version
+	static boolean execute(int aluOp, int[] a, int[] b, int[] dest) {
+		if (!supports(aluOp)) {
+			return false;
+		}
+
+		int lanes = dest.length;
+		int bound = INTS.loopBound(lanes);
+		int i = 0;
+		for (; i < bound; i += INTS.length()) {
+			IntVector va = IntVector.fromArray(INTS, a, i);
+			IntVector vb = IntVector.fromArray(INTS, b, i);
+			compute(aluOp, va, vb).intoArray(dest, i);
+		}
+		for (; i < lanes; i++) { // Whatever doesn't fill up a whole vector
+			dest[i] = Processor.ArithmeticLogicUnit.compute(aluOp, a[i], b[i]);
+		}
+		return true;
+	}
+
+	static boolean supports(int aluOp) {
+		switch (aluOp) {
+			case 1: case 2: case 3: case 5: case 9: case 10: case 11: case 12: case 19:
+				return true;
+		}
+		return false;
+	}
+
+	private static IntVector compute(int aluOp, IntVector a, IntVector b) {
+		switch (aluOp) {
+			case 1:  return addition(a, b);
+			case 2:  return addition(a, b.lanewise(VectorOperators.XOR, SIGN));
+			case 3:  return a.lanewise(VectorOperators.XOR, SIGN);
+			case 5:  return canonicalize(a.reinterpretAsFloats().div(b.reinterpretAsFloats()));
+			case 9:  return a.and(0x7FFFFFFF);
+			case 10: return a.lanewise(VectorOperators.XOR, SIGN);
+			case 11: return minimum(a, b);
+			case 12: return maximum(a, b);
+			case 19: return canonicalize(a.reinterpretAsFloats().sqrt());
+		}
+		throw new RuntimeException("No vector version of aluOps value: " + aluOp);
+	}
+
+	private static IntVector canonicalize(FloatVector result) {
+		VectorMask<Integer> nan = result.test(VectorOperators.IS_NAN).cast(INTS);
+		return result.reinterpretAsInts().blend(CANONICAL_NAN, nan);
+	}
+
+	// Same order of checks as the scalar version, done backwards so that the first check that matches wins
+	private static IntVector minimum(IntVector a, IntVector b) {
+		IntVector signA = a.and(SIGN), signB = b.and(SIGN);
+		IntVector expA = a.and(0x7F800000), expB = b.and(0x7F800000);
+		IntVector mantissaA = a.and(0x007FFFFF), mantissaB = b.and(0x007FFFFF);
+
+		IntVector result = b.blend(a, mantissaA.compare(VectorOperators.LT, mantissaB));
+		result = result.blend(b, expB.compare(VectorOperators.LT, expA));
+		result = result.blend(a, expA.compare(VectorOperators.LT, expB));
+		result = result.blend(b, signB.compare(VectorOperators.LT, signA));
+		return result.blend(a, signA.compare(VectorOperators.LT, signB));
+	}
+
+	private static IntVector maximum(IntVector a, IntVector b) {
+		IntVector signA = a.and(SIGN), signB = b.and(SIGN);
+		IntVector expA = a.and(0x7F800000), expB = b.and(0x7F800000);
+		IntVector mantissaA = a.and(0x007FFFFF), mantissaB = b.and(0x007FFFFF);
+
+		IntVector result = b.blend(a, mantissaA.compare(VectorOperators.GT, mantissaB));
+		result = result.blend(b, expB.compare(VectorOperators.GT, expA));
+		result = result.blend(a, expA.compare(VectorOperators.GT, expB));
+		result = result.blend(b, signB.compare(VectorOperators.GT, signA));
+		return result.blend(a, signA.compare(VectorOperators.GT, signB));
+	}
+
+	// Lane by lane copy of ArithmeticLogicUnit.addition, with every branch turned into a blend. A couple of things
+	// that the scalar version relies on:
+	//  - Shift counts wrap around at 32 just like Java's >>>, so the large exponent differences work out the same
+	//  - The guard/round bits aren't masked down to three bits, they keep everything above them too
+	//  - Adding two 24 bit mantissas (plus one for rounding) never reaches 2^25, so the right normalization shift is
+	//    always by exactly one
+	//  - Anything below 2^23 converts to a float exactly, so its exponent is the position of the highest set bit
+	private static IntVector addition(IntVector a, IntVector b) {
+		IntVector zero = IntVector.zero(INTS);
+		IntVector signA = a.and(SIGN), signB = b.and(SIGN);
+		IntVector expA = a.and(0x7F800000), expB = b.and(0x7F800000);
+		IntVector mantissaA = a.and(0x007FFFFF).or(0x00800000);
+		IntVector mantissaB = b.and(0x007FFFFF).or(0x00800000);
+
+		// Rewrite smaller number to have the same exponent as the larger one
+		VectorMask<Integer> aLarger = expA.compare(VectorOperators.GT, expB);
+		IntVector difference = expA.lanewise(VectorOperators.LSHR, 23).sub(expB.lanewise(VectorOperators.LSHR, 23)).abs();
+		IntVector smaller = mantissaA.blend(mantissaB, aLarger);
+		IntVector grBits = smaller.lanewise(VectorOperators.LSHR, difference.sub(3));
+		IntVector stickyBit = sticky(smaller, difference);
+		smaller = smaller.lanewise(VectorOperators.LSHR, difference);
+		mantissaA = smaller.blend(mantissaA, aLarger);
+		mantissaB = mantissaB.blend(smaller, aLarger);
+		IntVector sumExp = expB.blend(expA, aLarger);
+		VectorMask<Integer> agrsBits = aLarger.not();
+		IntVector grs = grBits.or(stickyBit);
+
+		// Both are either negative or positive
+		VectorMask<Integer> sameSign = signA.compare(VectorOperators.EQ, signB);
+		IntVector sameSum = mantissaA.add(mantissaB).add(1, grs.compare(VectorOperators.GT, 4));
+
+		// Both are different. The grs bits round the other way if they belong to the negative mantissa
+		VectorMask<Integer> aNegative = signA.compare(VectorOperators.LT, signB);
+		VectorMask<Integer> negativeGrs = aNegative.and(agrsBits).or(aNegative.not().and(agrsBits.not()));
+		VectorMask<Integer> roundDown = negativeGrs.and(grs.compare(VectorOperators.GE, 4));
+		VectorMask<Integer> roundUp = roundDown.not().and(grs.compare(VectorOperators.GT, 4));
+		IntVector differenceSum = mantissaA.sub(mantissaB).blend(mantissaB.sub(mantissaA), aNegative);
+		differenceSum = differenceSum.sub(1, roundDown).add(1, roundUp);
+		VectorMask<Integer> negativeSum = differenceSum.compare(VectorOperators.LT, 0);
+
+		IntVector sumMant = differenceSum.abs().blend(sameSum, sameSign);
+		IntVector sumSign = zero.blend(SIGN, negativeSum).blend(signA, sameSign);
+		grBits = grBits.blend(zero, roundDown.or(roundUp).andNot(sameSign));
+
+		// Check if sum is normal, if not, then normalize it
+		IntVector top = sumMant.lanewise(VectorOperators.LSHR, 23);
+		IntVector highestBit = ((FloatVector) sumMant.convert(VectorOperators.I2F, 0)).reinterpretAsInts()
+			.lanewise(VectorOperators.LSHR, 23).sub(127);
+		VectorMask<Integer> left = top.compare(VectorOperators.EQ, 0).and(highestBit.compare(VectorOperators.GE, 1));
+		VectorMask<Integer> right = top.compare(VectorOperators.GT, 1);
+		IntVector leftShift = highestBit.neg().add(23);
+
+		stickyBit = stickyBit.blend(stickyBit.or(sticky(sumMant, 22)).or(sticky(grBits, 22)), right);
+		sumMant = sumMant.blend(sumMant.lanewise(VectorOperators.LSHL, leftShift).and(0x007FFFFF), left)
+			.blend(sumMant.lanewise(VectorOperators.LSHR, 1).and(0x007FFFFF), right);
+		grBits = grBits.blend(grBits.lanewise(VectorOperators.LSHL, leftShift).and(6), left)
+			.blend(grBits.lanewise(VectorOperators.LSHR, 19), right);
+		sumExp = sumExp.blend(sumExp.sub(leftShift.lanewise(VectorOperators.LSHL, 23)), left)
+			.blend(sumExp.add(1 << 23), right);
+
+		// Check for too large or too small numbers
+		IntVector exponent = sumExp.lanewise(VectorOperators.LSHR, 23);
+		VectorMask<Integer> nan = exponent.compare(VectorOperators.LT, 1).or(exponent.compare(VectorOperators.GT, 254));
+
+		IntVector sum = sumExp.and(0x7FE00000).or(sumMant.and(0x007FFFFF));
+		grs = grBits.or(stickyBit);
+		VectorMask<Integer> roundSum = grs.compare(VectorOperators.GT, 4)
+			.or(grs.compare(VectorOperators.EQ, 4).and(sumSign.compare(VectorOperators.NE, 0)));
+		sum = sum.add(1, roundSum);
+		nan = nan.or(sum.compare(VectorOperators.LT, 0)); // Value overflowed during rounding
+
+		IntVector result = sumSign.or(sum).blend(-1, nan);
+
+		// Special cases, lowest priority first so the ones the scalar version checks first win
+		result = result.blend(0, a.compare(VectorOperators.EQ, b.lanewise(VectorOperators.XOR, SIGN)));
+		result = result.blend(a, b.compare(VectorOperators.EQ, 0).or(b.compare(VectorOperators.EQ, SIGN)));
+		result = result.blend(b, a.compare(VectorOperators.EQ, 0).or(a.compare(VectorOperators.EQ, SIGN)));
+		return result.blend(-1, special(a).or(special(b)));
+	}
+
+	// NaN and infinity patterns that make the scalar addition give up straight away
+	private static VectorMask<Integer> special(IntVector v) {
+		return v.compare(VectorOperators.EQ, 0xFFFFFFFF).or(v.compare(VectorOperators.EQ, 0x7FFFFFFF))
+			.or(v.compare(VectorOperators.EQ, 0x7F800000)).or(v.compare(VectorOperators.EQ, 0xFF800000));
+	}
+
+	// Matches ArithmeticLogicUnit.sticky: one if any of the bits that get shifted out are set
+	private static IntVector sticky(IntVector val, IntVector shift) {
+		IntVector zero = IntVector.zero(INTS);
+		IntVector mask = zero.add(1).lanewise(VectorOperators.LSHL, shift).sub(1);
+		// Past 32 the scalar loop has looked at every bit at least once
+		VectorMask<Integer> wide = shift.compare(VectorOperators.GE, 32);
+		VectorMask<Integer> set = val.and(mask).compare(VectorOperators.NE, 0).andNot(wide)
+			.or(val.compare(VectorOperators.NE, 0).and(wide));
+		return zero.blend(1, set);
+	}
+
+	private static IntVector sticky(IntVector val, int shift) {
+		return IntVector.zero(INTS).blend(1, val.and((1 << shift) - 1).compare(VectorOperators.NE, 0));
+	}
+}
@@ -0,0 +1,146 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The rewritten ALU routines against the originals in ReferenceAlu and against the host's IEEE arithmetic
+class ArithmeticLogicUnitTest {
+
+	private static final int SIZE = Operands.CORPUS_SIZE;
+
+	// The integer multiply has to match the original float based one wherever that one was right (both inputs in
+	// [1, 2^23))
+	@Test
+	void multiplicationMatchesTheOriginal() {
+		Random random = new Random(7);
+		int[] a = new int[SIZE], b = new int[SIZE];
+		int[] expected = new int[SIZE], actual = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			a[i] = Operands.normal(random, 127, 23);
+			b[i] = Operands.normal(random, 127, 23);
+			expected[i] = ReferenceAlu.multiplication(a[i], b[i]);
+			actual[i] = Processor.ArithmeticLogicUnit.multiplication(a[i], b[i]);
+		}
+		Operands.assertSameBits("multiplication", a, b, expected, actual);
+	}
+
+	// And real IEEE multiplication everywhere the product is a normal number
+	@Test
+	void multiplicationMatchesIeee() {
+		Random random = new Random(8);
+		int[] a = new int[SIZE], b = new int[SIZE];
+		int[] expected = new int[SIZE], actual = new int[SIZE];
+		int count = 0;
+		while (count < SIZE) {
+			int x = Operands.normal(random, 1, 254);
+			int y = Operands.normal(random, 1, 254);
+			int product = Float.floatToIntBits(Float.intBitsToFloat(x) * Float.intBitsToFloat(y));
+			if ((product & 0x7F800000) < 0x01000000) {
+				continue; // Subnormal (or close enough to round into the smallest normal), which the ALU flushes to zero
+			}
+			a[count] = x;
+			b[count] = y;
+			expected[count] = product;
+			actual[count++] = Processor.ArithmeticLogicUnit.multiplication(x, y);
+		}
+		Operands.assertSameBits("multiplication", a, b, expected, actual);
+	}
+
+	// The constant time adder has to match the original bit for bit, everywhere
+	@Test
+	void additionMatchesTheOriginal() {
+		Random random = new Random(11);
+		int[] a = Operands.corpus(random, SIZE);
+		int[] b = Operands.corpus(random, SIZE);
+		int[] expected = new int[SIZE], actual = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			expected[i] = ReferenceAlu.addition(a[i], b[i]);
+			actual[i] = Processor.ArithmeticLogicUnit.addition(a[i], b[i]);
+		}
+		Operands.assertSameBits("addition", a, b, expected, actual);
+	}
+
+	@Test
+	void subtractionMatchesTheOriginal() {
+		Random random = new Random(12);
+		int[] a = Operands.corpus(random, SIZE);
+		int[] b = Operands.corpus(random, SIZE);
+		int[] expected = new int[SIZE], actual = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			expected[i] = ReferenceAlu.addition(a[i], b[i] ^ 0x80000000);
+			actual[i] = Processor.ArithmeticLogicUnit.subtraction(a[i], b[i]);
+		}
+		Operands.assertSameBits("subtraction", a, b, expected, actual);
+	}
+
+	// Pow by squaring against StrictMath.pow, with exponents all the way up to the largest immediate
+	@Test
+	void powerIsWithinOneUlp() {
+		Random random = new Random(13);
+		long worst = 0;
+		for (int i = 0; i < SIZE / 4; i++) {
+			float base = 0.5f + random.nextFloat() * 1.5f;
+			int exponent = i % 2 == 0 ? random.nextInt(200) : random.nextInt(1 << 19);
+			int expected = Float.floatToIntBits((float) StrictMath.pow(base, exponent));
+			worst = Math.max(worst, Operands.ulps(expected, Processor.ArithmeticLogicUnit.power(Float.floatToIntBits(base), exponent)));
+		}
+		assertTrue(worst <= 1, "worst error " + worst + " ulp");
+	}
+
+	// The fused multiply-add has to match Math.fma wherever the result is a normal number: products near -c (where
+	// most of the bits cancel), c far bigger or smaller than the product, and anything in between
+	@Test
+	void fusedMultiplyAddMatchesMathFma() {
+		Random random = new Random(31);
+		int[] a = new int[SIZE], b = new int[SIZE];
+		int[] expected = new int[SIZE], actual = new int[SIZE];
+		int count = 0;
+		while (count < SIZE) {
+			int x = Operands.normal(random, 100, 54);
+			int y = Operands.normal(random, 100, 54);
+			float product = Float.intBitsToFloat(x) * Float.intBitsToFloat(y);
+			int c;
+			switch (random.nextInt(3)) {
+				case 0:  c = Float.floatToIntBits(-product) + random.nextInt(5) - 2; break;
+				case 1:  c = Operands.normal(random, 100, 54); break;
+				default: c = Operands.normal(random, 1, 254); break;
+			}
+			float fma = Math.fma(Float.intBitsToFloat(x), Float.intBitsToFloat(y), Float.intBitsToFloat(c));
+			if (Math.abs(fma) < Float.MIN_NORMAL || Float.isInfinite(fma) || (c & 0x7F800000) == 0) {
+				continue; // The ALU flushes subnormals to zero
+			}
+			a[count] = x;
+			b[count] = y;
+			expected[count] = Float.floatToIntBits(fma);
+			actual[count++] = Processor.ArithmeticLogicUnit.fusedMultiplyAdd(x, y, c);
+		}
+		Operands.assertSameBits("fma", a, b, expected, actual);
+	}
+
+	// A few exact results, through the same switch the engines use
+	@Test
+	void computeGivesExactResults() {
+		assertEquals(3.75f, compute(1, 1.5f, 2.25f));
+		assertEquals(-0.75f, compute(2, 1.5f, 2.25f));
+		assertEquals(-1.5f, compute(3, 1.5f, 0));
+		assertEquals(3.375f, compute(4, 1.5f, 2.25f));
+		assertEquals(0.25f, compute(5, 0.5f, 2));
+		assertEquals(2f, compute(6, 2.75f, 0));
+		assertEquals(3f, compute(7, 2.25f, 0));
+		assertEquals(1.5f, compute(9, -1.5f, 0));
+		assertEquals(-1.5f, compute(11, -1.5f, 2.25f));
+		assertEquals(2.25f, compute(12, -1.5f, 2.25f));
+		assertEquals(3f, compute(19, 9, 0));
+		assertEquals(1024f, Float.intBitsToFloat(Processor.ArithmeticLogicUnit.power(Float.floatToIntBits(2), 10)));
+		assertEquals(7f, Float.intBitsToFloat(Processor.ArithmeticLogicUnit.compute(21, Float.floatToIntBits(2),
+			Float.floatToIntBits(3), Float.floatToIntBits(1))));
+	}
+
+	private static float compute(int aluOp, float a, float b) {
+		return Float.intBitsToFloat(Processor.ArithmeticLogicUnit.compute(aluOp, Float.floatToIntBits(a), Float.floatToIntBits(b)));
+	}
+}
@@ -0,0 +1,41 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// What the assembler encodes labels, addresses and Fma as, and the programs it has to refuse
+class AssemblerTest {
+
+	@Test
+	void branchesGoToTheirLabels() {
+		Program program = RandomPrograms.assemble("Set R1, #3\nstart:\n Beq R1, R2, end\nback: Loop R1, start -- Comment\nend: Get R1\n");
+		assertEquals(4, program.length());
+		assertEquals(23 << 27 | 1 << 19 | 2 << 15 | 3, program.instruction(1));
+		assertEquals(27 << 27 | 1 << 23 | 1, program.instruction(2));
+		assertEquals(1 << 27 | 1 << 23, program.instruction(3));
+	}
+
+	@Test
+	void loadsAndStoresTakeAnOffsetAndBase() {
+		Program program = RandomPrograms.assemble("Load R1, 4(R2)\nStore R3, -1(R15)\nLoad R4, (R5)\n");
+		assertEquals(28 << 27 | 1 << 23 | 2 << 19 | 4, program.instruction(0));
+		assertEquals(29 << 27 | 3 << 23 | 15 << 19 | 0x7FFFF, program.instruction(1));
+		assertEquals(28 << 27 | 4 << 23 | 5 << 19, program.instruction(2));
+	}
+
+	@Test
+	void fmaTakesThreeSources() {
+		assertEquals(30 << 27 | 1 << 23 | 2 << 19 | 3 << 15 | 4 << 11, RandomPrograms.assemble("Fma R1, R2, R3, R4\n").instruction(0));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"Loop R1, nowhere\n", "a: Get R1\na: Get R2\n", "Blt R1, R2\n", "Load R1, R2\n", "Load R1, 4(R16)\n",
+		"Store R1, 262144(R2)\n", "Load R1, x(R2)\n", "Load R1, 4(R2\n"})
+	void refusesBadPrograms(String source) {
+		assertThrows(RuntimeException.class, () -> RandomPrograms.assemble(source));
+	}
+}
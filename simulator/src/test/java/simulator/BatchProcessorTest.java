@@ -0,0 +1,63 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Every lane of a batch has to give the same bits as running its registers through a Processor on their own
+class BatchProcessorTest {
+
+	private static final int LANES = 37;
+
+	@Test
+	void lanesMatchSeparateRuns() {
+		Random random = new Random(43);
+		for (int n = 0; n < 100; n++) {
+			Program program = RandomPrograms.program(random, 200, 3, n % 2 == 0);
+			int[][] lanes = lanes(random);
+			int[][] scalar = new BatchProcessor(program).runBits(copy(lanes));
+			int[][] vectorized = new BatchProcessor(program, true).runBits(copy(lanes));
+			for (int lane = 0; lane < LANES; lane++) {
+				int[] start = new int[16];
+				for (int reg = 0; reg < 16; reg++) {
+					start[reg] = lanes[reg][lane];
+				}
+				Processor processor = new Processor(program);
+				processor.setRegisters(start);
+				int[] expected = processor.start();
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(expected[i], scalar[i][lane], "program " + n + ", lane " + lane);
+				}
+			}
+			assertArrayEquals(scalar, vectorized, "program " + n + ", vectorized");
+		}
+	}
+
+	@Test
+	void refusesBranchesAndMemory() {
+		assertThrows(RuntimeException.class, () -> new BatchProcessor(RandomPrograms.assemble("a: Loop R1, a\n")));
+		assertThrows(RuntimeException.class, () -> new BatchProcessor(RandomPrograms.assemble("Load R1, (R2)\n")));
+	}
+
+	static int[][] lanes(Random random) {
+		int[][] lanes = new int[16][LANES];
+		for (int reg = 0; reg < 16; reg++) {
+			for (int lane = 0; lane < LANES; lane++) {
+				lanes[reg][lane] = Float.floatToIntBits(random.nextFloat() * 10);
+			}
+		}
+		return lanes;
+	}
+
+	static int[][] copy(int[][] lanes) {
+		int[][] copy = new int[lanes.length][];
+		for (int i = 0; i < lanes.length; i++) {
+			copy[i] = lanes[i].clone();
+		}
+		return copy;
+	}
+}
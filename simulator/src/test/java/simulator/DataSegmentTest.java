@@ -0,0 +1,89 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Addresses, bounds, files and overlays
+class DataSegmentTest {
+
+	private static final int TWO = Float.floatToIntBits(2);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void allocatedStartsAsZeros() {
+		DataSegment memory = DataSegment.allocate(16);
+		assertEquals(16, memory.length());
+		for (int i = 0; i < 16; i++) {
+			assertEquals(0f, memory.get(i));
+		}
+	}
+
+	// The base is a float, and its whole part is added to the offset
+	@Test
+	void addressIsBasePlusOffset() {
+		DataSegment memory = DataSegment.allocate(8);
+		memory.store(Float.floatToIntBits(2.75f), 3, TWO);
+		assertEquals(2f, memory.get(5));
+		assertEquals(TWO, memory.load(Float.floatToIntBits(6), -1));
+	}
+
+	@Test
+	void refusesAddressesOutsideTheSegment() {
+		DataSegment memory = DataSegment.allocate(8);
+		assertThrows(RuntimeException.class, () -> memory.load(Float.floatToIntBits(8), 0));
+		assertThrows(RuntimeException.class, () -> memory.load(0, -1));
+		assertThrows(RuntimeException.class, () -> memory.store(Float.floatToIntBits(Float.NaN), 0, TWO));
+		assertThrows(RuntimeException.class, () -> memory.get(8));
+		assertThrows(RuntimeException.class, () -> memory.set(-1, 2));
+		assertThrows(RuntimeException.class, () -> DataSegment.allocate(-1));
+	}
+
+	@Test
+	void storesGoToTheFile() throws IOException {
+		Path file = directory.resolve("data.bin");
+		Files.write(file, ByteBuffer.allocate(16).putFloat(1).putFloat(2).putFloat(3).putFloat(4).array());
+		try (DataSegment memory = DataSegment.map(file, true)) {
+			assertEquals(4, memory.length());
+			assertEquals(Float.floatToIntBits(3), memory.load(0, 2));
+			memory.store(0, 0, Float.floatToIntBits(5));
+		}
+		assertEquals(5f, ByteBuffer.wrap(Files.readAllBytes(file)).getFloat(0));
+	}
+
+	@Test
+	void readOnlyRefusesStores() throws IOException {
+		Path file = directory.resolve("data.bin");
+		Files.write(file, new byte[16]);
+		try (DataSegment memory = DataSegment.map(file, false)) {
+			assertThrows(RuntimeException.class, () -> memory.store(0, 0, TWO));
+		}
+	}
+
+	@Test
+	void refusesPartOfAFloat() throws IOException {
+		Path file = directory.resolve("data.bin");
+		Files.write(file, new byte[6]);
+		assertThrows(RuntimeException.class, () -> DataSegment.map(file, false));
+	}
+
+	// The overlay sees what's underneath, but its own Stores stay in it
+	@Test
+	void overlayKeepsItsStores() {
+		DataSegment memory = RandomPrograms.segment(new float[] {1, 2, 3});
+		DataSegment overlay = memory.overlay();
+		overlay.store(0, 1, Float.floatToIntBits(7));
+		assertEquals(7f, overlay.get(1));
+		assertEquals(2f, memory.get(1));
+		assertEquals(Float.floatToIntBits(3), overlay.load(0, 2));
+	}
+}
@@ -0,0 +1,53 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// The same programs forced to go parallel and run sequentially. Lots of Sets break the programs up into many chains
+class DataflowSchedulerTest {
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	// Each one runs a few times to make sure the results don't depend on how the chains happened to get scheduled
+	@Test
+	void parallelRunsMatchSequentialOnes() {
+		Random random = new Random(19);
+		long chains = 0;
+		for (int n = 0; n < 200; n++) {
+			Processor.DecodedProgram program = Processor.DecodedProgram.decode(RandomPrograms.program(random, 5000, 5, n % 2 == 0));
+			DataflowScheduler scheduler = new DataflowScheduler(program, 0, pool);
+			if (!scheduler.parallel()) {
+				continue; // One chain took over the whole program
+			}
+			chains += scheduler.chainCount();
+
+			int[] start = RandomPrograms.registers(random, 16);
+			int[] expectedRegisters = start.clone();
+			int[] expected = new ThreadedEngine(program).run(expectedRegisters);
+			for (int repeat = 0; repeat < 3; repeat++) {
+				int[] registers = start.clone();
+				assertArrayEquals(expected, scheduler.run(registers), "program " + n);
+				assertArrayEquals(expectedRegisters, registers, "program " + n);
+			}
+		}
+		assertTrue(chains > 0, "no program went parallel");
+	}
+
+	@Test
+	void shortProgramsRunSequentially() {
+		Program program = RandomPrograms.program(new Random(20), 100, 5, true);
+		assertFalse(new DataflowScheduler(Processor.DecodedProgram.decode(program), 1000, pool).parallel());
+	}
+}
@@ -0,0 +1,184 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+// A remembered result has to be exactly what the ALU works out, however many threads are filling the cache
+class MemoCacheTest {
+
+	private static final int SIN = 14;
+
+	@Test
+	void rememberedResultsHit() {
+		MemoCache memo = new MemoCache(100);
+		assertEquals(128, memo.capacity());
+		int a = Float.floatToIntBits(0.5f);
+		assertEquals(Processor.ArithmeticLogicUnit.compute(SIN, a, 0), memo.compute(SIN, a));
+		assertEquals(Processor.ArithmeticLogicUnit.compute(SIN, a, 0), memo.compute(SIN, a));
+		assertEquals(1, memo.hits(SIN));
+		assertEquals(1, memo.misses(SIN));
+		assertEquals(0.5, memo.hitRate(SIN));
+		memo.clear();
+		assertEquals(0, memo.hits(SIN));
+	}
+
+	// With one set, filling it and then using the first input again means the clock skips that one and takes the next
+	@Test
+	void usedEntriesSurviveEviction() {
+		MemoCache memo = new MemoCache(8);
+		for (int i = 0; i <= 8; i++) {
+			if (i == 8) {
+				memo.compute(SIN, Float.floatToIntBits(0)); // Hit, so referenced
+			}
+			memo.compute(SIN, Float.floatToIntBits(i));
+		}
+		assertEquals(1, memo.evictions(SIN));
+		long hits = memo.hits(SIN);
+		memo.compute(SIN, Float.floatToIntBits(0));
+		assertEquals(hits + 1, memo.hits(SIN));
+		memo.compute(SIN, Float.floatToIntBits(1));
+		assertEquals(hits + 1, memo.hits(SIN), "the entry that wasn't used again should have gone");
+	}
+
+	// Two sets, both full. Evicting from the first mustn't move the second's hand, so the second still replaces its
+	// own first slot, not its second
+	@Test
+	void everySetHasItsOwnHand() {
+		MemoCache memo = new MemoCache(16);
+		int[][] sets = new int[2][9];
+		int[] counts = new int[2];
+		for (int i = 1; counts[0] < 9 || counts[1] < 9; i++) {
+			int a = Float.floatToIntBits(i);
+			int set = set(a, 2);
+			if (counts[set] < 9) {
+				sets[set][counts[set]++] = a;
+			}
+		}
+		for (int i = 0; i < 8; i++) {
+			memo.compute(SIN, sets[0][i]);
+			memo.compute(SIN, sets[1][i]);
+		}
+		memo.compute(SIN, sets[0][8]); // Takes the first set's first slot
+		memo.compute(SIN, sets[1][8]); // Should take the second set's first slot too
+		assertEquals(2, memo.evictions(SIN));
+
+		long hits = memo.hits(SIN);
+		memo.compute(SIN, sets[1][1]);
+		assertEquals(hits + 1, memo.hits(SIN), "the second set's second entry should still be there");
+		memo.compute(SIN, sets[1][0]);
+		assertEquals(hits + 1, memo.hits(SIN), "the second set's first entry should have gone");
+	}
+
+	@Test
+	void nanIsNeverKept() {
+		MemoCache memo = new MemoCache(8);
+		memo.compute(SIN, 0x7FC00000);
+		memo.compute(SIN, 0x7FC00000);
+		assertEquals(0, memo.hits(SIN) + memo.misses(SIN));
+	}
+
+	// Far too small for its inputs, so it's evicting all the time, and shared by four threads that each check every
+	// result against the ALU
+	@Test
+	void sharedBetweenThreads() throws InterruptedException {
+		int[] inputs = inputs(new Random(37));
+		MemoCache memo = new MemoCache(64);
+		LongAdder mismatches = new LongAdder();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			long seed = t;
+			threads[t] = new Thread(() -> {
+				Random own = new Random(seed);
+				for (int i = 0; i < 200_000; i++) {
+					int aluOp = MemoCache.FIRST + own.nextInt(MemoCache.LAST - MemoCache.FIRST + 1);
+					int a = inputs[own.nextInt(inputs.length)];
+					if (memo.compute(aluOp, a) != Processor.ArithmeticLogicUnit.compute(aluOp, a, 0)) {
+						mismatches.increment();
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long hits = 0, evictions = 0;
+		for (int aluOp = MemoCache.FIRST; aluOp <= MemoCache.LAST; aluOp++) {
+			hits += memo.hits(aluOp);
+			evictions += memo.evictions(aluOp);
+		}
+		assertEquals(0, mismatches.sum());
+		assertTrue(hits > 0 && evictions > 0, hits + " hits, " + evictions + " evictions");
+	}
+
+	// Random programs on the decoded engine and in a batch, with and without one
+	@Test
+	void programsGiveTheSameResults() {
+		Random random = new Random(38);
+		int[] inputs = inputs(random);
+		MemoCache memo = new MemoCache(64);
+		for (int n = 0; n < 200; n++) {
+			Program program = RandomPrograms.program(random, 100, 3, n % 2 == 0);
+			int[] start = new int[16];
+			int[][] lanes = new int[16][32];
+			for (int reg = 0; reg < 16; reg++) {
+				start[reg] = inputs[random.nextInt(inputs.length)];
+				for (int lane = 0; lane < 32; lane++) {
+					lanes[reg][lane] = inputs[random.nextInt(20)];
+				}
+			}
+			int[] expectedRegisters = start.clone();
+			int[] expected = new ThreadedEngine(Processor.DecodedProgram.decode(program)).run(expectedRegisters);
+			if (expected.length == 0) {
+				expected = expectedRegisters; // Processor.start() gives the registers instead
+			}
+			Processor processor = new Processor(program);
+			processor.setMemo(memo);
+			processor.setRegisters(start);
+			assertArrayEquals(expected, processor.start(), "program " + n);
+
+			BatchProcessor batch = new BatchProcessor(program);
+			int[][] expectedLanes = batch.runBits(BatchProcessorTest.copy(lanes));
+			batch.setMemo(memo);
+			assertArrayEquals(expectedLanes, batch.runBits(BatchProcessorTest.copy(lanes)), "program " + n + " in a batch");
+		}
+	}
+
+	// The other engines call the ALU routines directly, so a memo given to one would never be used
+	@Test
+	void onlyDecodedAndStructuralTakeOne() {
+		Program program = RandomPrograms.assemble("Sin R1, R1\nGet R1\n");
+		for (Processor.Engine engine : Processor.Engine.values()) {
+			Processor processor = new Processor(program, engine);
+			if (Processor.usesMemo(engine)) {
+				processor.setMemo(new MemoCache(8));
+			} else {
+				assertThrows(RuntimeException.class, () -> processor.setMemo(new MemoCache(8)), engine.name());
+			}
+			processor.setMemo(null);
+		}
+	}
+
+	// Mostly a few dozen round numbers, like a program's Set immediates, with the special values at the front
+	private static int[] inputs(Random random) {
+		int[] inputs = new int[300];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = random.nextInt(4) == 0 ? random.nextInt() : Float.floatToIntBits((random.nextInt(100) - 50) / 8.0f);
+		}
+		System.arraycopy(Operands.SPECIAL_VALUES, 0, inputs, 0, Operands.SPECIAL_VALUES.length);
+		return inputs;
+	}
+
+	// The same hash MemoCache uses to pick an input's set
+	private static int set(int a, int sets) {
+		int h = a * 0x9E3779B9;
+		return (h ^ h >>> 16) & sets - 1;
+	}
+}
@@ -0,0 +1,62 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+
+// Operands for checking the ALU over a large random corpus, and ways of comparing its results
+class Operands {
+
+	static final int CORPUS_SIZE = 1 << 20;
+
+	// Bit patterns that tend to break things
+	static final int[] SPECIAL_VALUES = {0x00000000, 0x80000000, 0x7F800000, 0xFF800000, 0x7FFFFFFF, 0xFFFFFFFF,
+		0x7FC00000, 0x00000001, 0x807FFFFF, 0x00800000, 0x7F7FFFFF, 0xFF7FFFFF, 0x3F800000, 0xBF800000, 0x3F7FFFFF};
+
+	// A mix of completely random bits, the special values, and pairs of nearby normal numbers so that additions
+	// actually have to line up mantissas instead of one side just swamping the other
+	static int[] corpus(Random random, int size) {
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			switch (random.nextInt(4)) {
+				case 0:  values[i] = random.nextInt(); break;
+				case 1:  values[i] = SPECIAL_VALUES[random.nextInt(SPECIAL_VALUES.length)]; break;
+				default: values[i] = (random.nextInt() & 0x807FFFFF) | ((random.nextInt(40) + 107) << 23); break;
+			}
+		}
+		return values;
+	}
+
+	// A random normal number with its exponent field in [low, low + count)
+	static int normal(Random random, int low, int count) {
+		return (random.nextInt() & 0x807FFFFF) | ((low + random.nextInt(count)) << 23);
+	}
+
+	// How many representable floats apart two results are
+	static long ulps(int expected, int actual) {
+		if (expected == actual) {
+			return 0;
+		}
+		if (Float.isNaN(Float.intBitsToFloat(expected)) || Float.isNaN(Float.intBitsToFloat(actual))) {
+			return Integer.MAX_VALUE;
+		}
+		// Map the sign magnitude bit patterns onto a line so that neighbouring floats are neighbouring integers
+		long e = expected < 0 ? 0x80000000L - (expected & 0x7FFFFFFF) : 0x80000000L + expected;
+		long a = actual < 0 ? 0x80000000L - (actual & 0x7FFFFFFF) : 0x80000000L + actual;
+		return Math.abs(e - a);
+	}
+
+	// Fails with the first few operands that gave different bits, and how many there were altogether
+	static void assertSameBits(String name, int[] a, int[] b, int[] expected, int[] actual) {
+		StringBuilder message = new StringBuilder();
+		int mismatches = 0;
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] != actual[i] && mismatches++ < 5) {
+				message.append(String.format("%n  %s(%08x, %08x): expected %08x, got %08x", name, a[i], b[i], expected[i], actual[i]));
+			}
+		}
+		if (mismatches > 0) {
+			fail(mismatches + " mismatches over " + expected.length + message);
+		}
+	}
+}
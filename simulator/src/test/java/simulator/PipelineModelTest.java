@@ -0,0 +1,51 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// Cycle counts for programs small enough to work out by hand
+class PipelineModelTest {
+
+	// One instruction a cycle once the first is through IF and ID, and the last one still has MEM and WB to go
+	@Test
+	void independentInstructionsDontStall() {
+		PipelineModel.Report report = analyze(true, "Set R1, #1\nSet R2, #2\nSet R3, #3\nSet R4, #4\n");
+		assertEquals(4, report.instructions);
+		assertEquals(8, report.cycles);
+		assertEquals(0, report.dataStalls + report.structuralStalls + report.controlStalls);
+	}
+
+	@Test
+	void forwardingSavesTheWaitForWriteBack() {
+		String source = "Set R1, #1\nFneg R2, R1\nFneg R3, R2\nFneg R4, R3\n";
+		PipelineModel.Report forwarded = analyze(true, source);
+		PipelineModel.Report written = analyze(false, source);
+		assertEquals(0, forwarded.dataStalls);
+		assertEquals(6, written.dataStalls);
+		assertEquals(forwarded.cycles + 6, written.cycles);
+		assertEquals(1, written.waitedOn(2));
+	}
+
+	// A Fadd takes four cycles in EX, so the one behind it waits three whether or not it reads the result
+	@Test
+	void longOperationsHoldUpTheNextOne() {
+		PipelineModel.Report report = analyze(true, "Fadd R1, R2, R3\nSet R4, #1\n");
+		assertEquals(3, report.structuralStalls);
+		assertEquals(0, report.dataStalls);
+	}
+
+	// Every trip but the last takes the branch back, and each of those throws away two fetches
+	@Test
+	void takenBranchesCostTwoCycles() {
+		PipelineModel.Report report = analyze(true, "Set R1, #5\nstart: Set R2, #1\nLoop R1, start\n");
+		assertEquals(11, report.instructions);
+		assertEquals(8, report.controlStalls);
+		assertTrue(report.cpi() > 1);
+	}
+
+	private static PipelineModel.Report analyze(boolean forwarding, String source) {
+		return new PipelineModel(forwarding).analyze(Processor.DecodedProgram.decode(RandomPrograms.assemble(source)));
+	}
+}
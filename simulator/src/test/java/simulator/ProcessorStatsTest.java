@@ -0,0 +1,55 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// Histogram buckets, and the counts each engine records
+class ProcessorStatsTest {
+
+	private static final int SET = 0, GET = 1, FADD = 3, LOOP = 27;
+
+	// Every value goes in the bucket whose range holds it
+	@Test
+	void bucketsHoldTheirValues() {
+		for (long nanos = 0; nanos < 1 << 20; nanos += 1 + nanos / 64) {
+			int bucket = ProcessorStats.bucket(nanos);
+			assertTrue(ProcessorStats.bucketStart(bucket) <= nanos, nanos + "ns in bucket " + bucket);
+			assertTrue(nanos < ProcessorStats.bucketStart(bucket + 1), nanos + "ns in bucket " + bucket);
+		}
+		assertEquals(ProcessorStats.BUCKETS - 1, ProcessorStats.bucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	void everyEngineCountsItsInstructions() {
+		Program program = RandomPrograms.assemble("Set R1, #1\nFadd R2, R1, R1\nFadd R3, R2, R1\nGet R3\n");
+		for (Processor.Engine engine : Processor.Engine.values()) {
+			ProcessorStats stats = new ProcessorStats();
+			Processor processor = new Processor(program, engine);
+			processor.setStats(stats);
+			processor.start();
+			processor.start();
+			assertEquals(2, stats.count(SET), engine.name());
+			assertEquals(4, stats.count(FADD), engine.name());
+			assertEquals(2, stats.count(GET), engine.name());
+			assertEquals(8, stats.retired(), engine.name());
+		}
+	}
+
+	// Three trips around the loop, so its body is counted three times whichever engine was asked for
+	@Test
+	void loopsAreCountedEveryTrip() {
+		Program program = RandomPrograms.assemble("Set R1, #3\nstart: Fadd R2, R2, R1\nLoop R1, start\nGet R2\n");
+		for (Processor.Engine engine : Processor.Engine.values()) {
+			ProcessorStats stats = new ProcessorStats();
+			Processor processor = new Processor(program, engine);
+			processor.setStats(stats);
+			processor.start();
+			assertEquals(1, stats.count(SET), engine.name());
+			assertEquals(3, stats.count(FADD), engine.name());
+			assertEquals(3, stats.count(LOOP), engine.name());
+			assertEquals(1, stats.count(GET), engine.name());
+		}
+	}
+}
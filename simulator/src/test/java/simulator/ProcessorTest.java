@@ -0,0 +1,99 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Every engine has to give the same bits as the structural one, which models the datapath the way it's drawn
+class ProcessorTest {
+
+	// Program1.txt, the force needed to push a crate up an inclined plane
+	private static final String INCLINED_PLANE = "Set R1, #30.0\nSet R2, #3.14159265\nFmul R1, R1, R2\nSet R2, #180.0\n"
+		+ "Fdiv R1, R1, R2\nCos R2, R1\nSet R3, #0.4\nFmul R2, R2, R3\nSin R1, R1\nFadd R1, R1, R2\nSet R2, #100.0\n"
+		+ "Fmul R1, R1, R2\nSet R2, #9.81\nFmul R1, R1, R2\nGet R1\n";
+
+	@Test
+	void inclinedPlaneOnEveryEngine() {
+		Program program = RandomPrograms.assemble(INCLINED_PLANE);
+		for (Processor.Engine engine : Processor.Engine.values()) {
+			int[] outputs = new Processor(program, engine).start();
+			assertEquals(1, outputs.length, engine.name());
+			assertEquals(830.31866f, Float.intBitsToFloat(outputs[0]), engine.name());
+		}
+	}
+
+	// Half of them have no Gets, so start() gives back the final registers
+	@Test
+	void randomProgramsOnEveryEngine() {
+		Random random = new Random(41);
+		for (int n = 0; n < 200; n++) {
+			Program program = RandomPrograms.program(random, 300, 3, n % 2 == 0);
+			int[] start = RandomPrograms.registers(random, 16);
+			Processor structural = new Processor(program, Processor.Engine.STRUCTURAL);
+			structural.setRegisters(start);
+			int[] expected = structural.start();
+			for (Processor.Engine engine : Processor.Engine.values()) {
+				Processor processor = new Processor(program, engine);
+				processor.setRegisters(start);
+				assertArrayEquals(expected, processor.start(), "program " + n + " on " + engine.name());
+				assertArrayEquals(structural.registers(), processor.registers(), "program " + n + " on " + engine.name());
+			}
+		}
+	}
+
+	// Each engine starts from its own copy of the same segment, and has to leave it the same as the structural one did
+	@Test
+	void loadsAndStoresOnEveryEngine() {
+		Random random = new Random(29);
+		for (int n = 0; n < 300; n++) {
+			Program program = RandomPrograms.memoryLoops(random, n % 2 == 0);
+			int[] start = RandomPrograms.registers(random, 14);
+			float[] contents = new float[64];
+			for (int i = 0; i < contents.length; i++) {
+				contents[i] = random.nextFloat() * 10;
+			}
+			DataSegment reference = RandomPrograms.segment(contents);
+			Processor structural = new Processor(program, Processor.Engine.STRUCTURAL);
+			structural.setRegisters(start);
+			structural.setMemory(reference);
+			int[] expected = structural.start();
+			for (Processor.Engine engine : Processor.Engine.values()) {
+				DataSegment memory = RandomPrograms.segment(contents);
+				Processor processor = new Processor(program, engine);
+				processor.setRegisters(start);
+				processor.setMemory(memory);
+				assertArrayEquals(expected, processor.start(), "program " + n + " on " + engine.name());
+				assertArrayEquals(structural.registers(), processor.registers(), "program " + n + " on " + engine.name());
+				for (int i = 0; i < contents.length; i++) {
+					assertEquals(Float.floatToRawIntBits(reference.get(i)), Float.floatToRawIntBits(memory.get(i)),
+						"program " + n + " on " + engine.name() + ", element " + i);
+				}
+			}
+		}
+	}
+
+	// The Get is there, but the branch always goes around it, so the registers are the results
+	@Test
+	void getsThatDidntRunGiveTheRegisters() {
+		Program program = RandomPrograms.assemble("Set R1, #1\nBeq R1, R1, end\nGet R1\nend: Set R2, #2\n");
+		for (Processor.Engine engine : Processor.Engine.values()) {
+			Processor processor = new Processor(program, engine);
+			assertEquals(16, processor.start().length, engine.name());
+			assertEquals(0, processor.getsRun(), engine.name());
+		}
+		Processor processor = new Processor(RandomPrograms.assemble(INCLINED_PLANE));
+		processor.start();
+		assertEquals(1, processor.getsRun());
+	}
+
+	@Test
+	void loadOutsideTheSegmentFails() {
+		Processor processor = new Processor(RandomPrograms.assemble("Load R1, 8(R0)\n"));
+		processor.setMemory(DataSegment.allocate(8));
+		assertThrows(RuntimeException.class, processor::start);
+	}
+}
@@ -0,0 +1,92 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Hits, least recently used eviction, and the image directory
+class ProgramCacheTest {
+
+	private static final String SQUARE = "Set R1, #3\nFmul R1, R1, R1\nGet R1\n";
+	private static final String CUBE = "Set R1, #3\nFmul R2, R1, R1\nFmul R1, R2, R1\nGet R1\n";
+	private static final String HALF = "Set R1, #3\nSet R2, #2\nFdiv R1, R1, R2\nGet R1\n";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void sameSourceHits() {
+		ProgramCache cache = new ProgramCache(1000);
+		ProgramCache.Entry first = cache.get(SQUARE);
+		assertSame(first, cache.get(SQUARE));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(1, cache.size());
+		assertEquals(3, cache.instructions());
+	}
+
+	@Test
+	void everyEngineRunsTheCachedProgram() {
+		ProgramCache.Entry entry = new ProgramCache(1000).get(SQUARE);
+		for (Processor.Engine engine : Processor.Engine.values()) {
+			assertArrayEquals(new int[] {Float.floatToIntBits(9)}, entry.processor(engine).start(), engine.name());
+		}
+	}
+
+	// Only room for two of the three, and the square was used after the cube, so the cube is the one to go
+	@Test
+	void evictsTheLeastRecentlyUsed() {
+		ProgramCache cache = new ProgramCache(8);
+		ProgramCache.Entry square = cache.get(SQUARE);
+		ProgramCache.Entry cube = cache.get(CUBE);
+		cache.get(SQUARE);
+		cache.get(HALF);
+		assertEquals(1, cache.evictions());
+		assertEquals(2, cache.size());
+		assertSame(square, cache.get(SQUARE));
+		assertNotSame(cube, cache.get(CUBE));
+	}
+
+	// A second cache (a new process, as far as it knows) over the same directory maps the image instead of assembling
+	@Test
+	void anotherCacheFindsTheImage() throws IOException {
+		Path source = directory.resolve("square.txt");
+		Files.writeString(source, SQUARE);
+		Path images = directory.resolve("images");
+		new ProgramCache(1000, images, 1 << 20).get(source);
+
+		ProgramCache cache = new ProgramCache(1000, images, 1 << 20);
+		ProgramCache.Entry entry = cache.get(source);
+		assertEquals(1, cache.diskHits());
+		assertEquals(0, cache.misses());
+		assertArrayEquals(new int[] {Float.floatToIntBits(9)}, entry.processor(Processor.Engine.DECODED).start());
+	}
+
+	// Every image is 32 bytes of header and 4 per instruction, so room for about two of them
+	@Test
+	void trimsTheDirectory() throws IOException {
+		Path images = directory.resolve("images");
+		ProgramCache cache = new ProgramCache(1000, images, 100);
+		cache.get(SQUARE);
+		cache.get(CUBE);
+		cache.get(HALF);
+		assertTrue(cache.diskEvictions() > 0);
+		long bytes = 0;
+		try (Stream<Path> listing = Files.list(images)) {
+			for (Path image : (Iterable<Path>) listing::iterator) {
+				bytes += Files.size(image);
+			}
+		}
+		assertTrue(bytes <= 100, bytes + " bytes left in the directory");
+	}
+}
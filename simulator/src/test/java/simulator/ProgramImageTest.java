@@ -0,0 +1,73 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Writing a program out and mapping it back in, and the images that loading has to refuse
+class ProgramImageTest {
+
+	@TempDir
+	Path directory;
+
+	// Half the Sets in a random program have full precision immediates, so the table after the instructions gets used
+	@Test
+	void loadsWhatWasWritten() throws IOException {
+		Program program = RandomPrograms.program(new Random(3), 5000, 3, true);
+		Path image = directory.resolve("program.img");
+		ProgramImage.write(program, image);
+		assertTrue(ProgramImage.isImage(image));
+		assertSame(program, ProgramImage.load(image));
+		assertSame(program, ProgramImage.load(image, false));
+		assertSame(program, ProgramImage.read(ByteBuffer.wrap(Files.readAllBytes(image)), true));
+	}
+
+	@Test
+	void sourceIsNotAnImage() throws IOException {
+		Path source = directory.resolve("program.txt");
+		Files.writeString(source, "Set R1, #3\nGet R1\n");
+		assertFalse(ProgramImage.isImage(source));
+		RuntimeException e = assertThrows(RuntimeException.class, () -> ProgramImage.load(source));
+		assertTrue(e.getMessage().endsWith("not a program image"), e.getMessage());
+	}
+
+	@Test
+	void refusesAFlippedBit() throws IOException {
+		byte[] bytes = image(RandomPrograms.program(new Random(4), 100, 3, true));
+		bytes[bytes.length - 5] ^= 1;
+		RuntimeException e = assertThrows(RuntimeException.class, () -> ProgramImage.read(ByteBuffer.wrap(bytes), true));
+		assertTrue(e.getMessage().endsWith("failed its checksum"), e.getMessage());
+	}
+
+	@Test
+	void refusesATruncatedImage() throws IOException {
+		byte[] bytes = image(RandomPrograms.program(new Random(5), 100, 3, true));
+		ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 4);
+		RuntimeException e = assertThrows(RuntimeException.class, () -> ProgramImage.read(truncated, false));
+		assertTrue(e.getMessage().endsWith("truncated or corrupt"), e.getMessage());
+	}
+
+	private byte[] image(Program program) throws IOException {
+		Path image = directory.resolve("image.img");
+		ProgramImage.write(program, image);
+		return Files.readAllBytes(image);
+	}
+
+	private static void assertSame(Program expected, Program actual) {
+		assertArrayEquals(expected.instructions(), actual.instructions());
+		assertArrayEquals(expected.wideIndexes(), actual.wideIndexes());
+		assertArrayEquals(expected.wideValues(), actual.wideValues());
+		assertEquals(expected.length(), actual.length());
+	}
+}
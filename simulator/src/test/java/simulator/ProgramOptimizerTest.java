@@ -0,0 +1,85 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+// Optimized programs have to give the same bits as the originals, and fusing has to fuse only what it's allowed to
+class ProgramOptimizerTest {
+
+	// Random programs only set some of the registers and use lots of Moves, so there's something left for copy
+	// propagation and dead writes after folding. Half of them have no Gets, so the final registers are the results
+	@Test
+	void optimizedProgramsGiveTheSameResults() {
+		Random random = new Random(17);
+		int removed = 0;
+		for (int n = 0; n < 2000; n++) {
+			boolean gets = n % 2 == 0;
+			Program original = RandomPrograms.program(random, 200, 2, gets);
+			ProgramOptimizer.Result result = ProgramOptimizer.optimize(original);
+			removed += result.removed();
+
+			int[] expectedRegisters = new int[16], actualRegisters = new int[16];
+			int[] expected = new ThreadedEngine(Processor.DecodedProgram.decode(original)).run(expectedRegisters);
+			int[] actual = new ThreadedEngine(Processor.DecodedProgram.decode(result.program)).run(actualRegisters);
+			assertArrayEquals(expected, actual, "program " + n);
+			if (!gets) {
+				assertArrayEquals(expectedRegisters, actualRegisters, "program " + n);
+			}
+		}
+		assertTrue(removed > 0, "nothing was removed");
+	}
+
+	// cos(sqrt(x)) for x in R1 by Horner's rule, 1 - x/2 + x^2/24 - x^3/720 + x^4/40320 - x^5/3628800 + x^6/479001600.
+	// Every Fmul/Fadd pair fuses, and rounding once gets closer to the exact answer
+	@Test
+	void fusingHornerGetsCloser() {
+		double[] coefficients = {1, -1 / 2.0, 1 / 24.0, -1 / 720.0, 1 / 40320.0, -1 / 3628800.0, 1 / 479001600.0};
+		Program.Builder horner = new Program.Builder();
+		horner.add(2 << 23, Float.floatToIntBits((float) coefficients[6]));
+		for (int k = 5; k >= 0; k--) {
+			horner.add(3 << 23, Float.floatToIntBits((float) coefficients[k]));
+			horner.add(6 << 27 | 2 << 23 | 2 << 19 | 1 << 15); // Fmul R2, R2, R1
+			horner.add(3 << 27 | 2 << 23 | 2 << 19 | 3 << 15); // Fadd R2, R2, R3
+		}
+		horner.add(1 << 27 | 2 << 23);
+		Program unfused = horner.build();
+		ProgramOptimizer.Result result = ProgramOptimizer.optimize(unfused, true);
+		assertEquals(6, result.fused);
+
+		ProgramCompiler.Kernel separate = ProgramCompiler.compile(Processor.DecodedProgram.decode(unfused));
+		ProgramCompiler.Kernel fused = ProgramCompiler.compile(Processor.DecodedProgram.decode(result.program));
+		Random random = new Random(31);
+		double separateError = 0, fusedError = 0;
+		for (int i = 0; i < 1000; i++) {
+			float x = random.nextFloat() * 20;
+			double exact = 0;
+			for (int k = 6; k >= 0; k--) {
+				exact = exact * x + (float) coefficients[k];
+			}
+			int[] registers = new int[16];
+			registers[1] = Float.floatToIntBits(x);
+			separateError += Math.abs(Float.intBitsToFloat(separate.run(registers.clone())[0]) - exact);
+			fusedError += Math.abs(Float.intBitsToFloat(fused.run(registers.clone())[0]) - exact);
+		}
+		assertTrue(fusedError < separateError, "fused error " + fusedError + ", separate " + separateError);
+	}
+
+	// Not when the product is read again, by a Get or by being one of the final registers of a program without Gets,
+	// but yes once its register is written over by the Fadd itself or a later Set
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', value = {
+		"Fmul R5, R1, R2;Fadd R6, R5, R3;Get R6;Get R5  | 0",
+		"Fmul R5, R1, R2;Fadd R6, R3, R5                | 0",
+		"Fmul R5, R1, R2;Fadd R5, R3, R5                | 1",
+		"Fmul R5, R1, R2;Fadd R6, R5, R3;Set R5, #1;Get R6 | 1"})
+	void fusesOnlyDeadProducts(String source, int fused) {
+		assertEquals(fused, ProgramOptimizer.optimize(RandomPrograms.assemble(source.replace(';', '\n') + "\n"), true).fused);
+	}
+}
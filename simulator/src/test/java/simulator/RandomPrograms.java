@@ -0,0 +1,126 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+// Random programs for checking that the engines, the optimizer and so on all agree with each other
+class RandomPrograms {
+
+	// Random instructions: out of every 10, about <sets> are Sets (some with full precision immediates), 2 are Moves
+	// and, if there are Gets, 1 is a Get. The rest are any other operation, Fma included, except Round, which takes
+	// seconds on zeros
+	static Program program(Random random, int length, int sets, boolean gets) {
+		Program.Builder builder = new Program.Builder();
+		add(builder, random, length, sets, gets, 16);
+		return builder.build();
+	}
+
+	// Only writes registers below registers, so the ones above can be kept for something else
+	static void add(Program.Builder builder, Random random, int length, int sets, boolean gets, int registers) {
+		for (int i = 0; i < length; i++) {
+			int dest = random.nextInt(registers), src1 = random.nextInt(16), src2 = random.nextInt(16);
+			int kind = random.nextInt(10);
+			if (kind < sets) {
+				int bits = Float.floatToIntBits((random.nextInt(2000) - 1000) / 8.0f);
+				if (random.nextBoolean()) {
+					builder.add(dest << 23, Float.floatToIntBits(random.nextFloat() * 1e-3f));
+				} else {
+					builder.add(dest << 23 | (bits >>> 9) & 0x400000 | ((((bits & 0x7F800000) >>> 23) - 112) << 17) & 0x3E0000
+						| (bits >>> 7) & 0x1FFFF);
+				}
+			} else if (kind < sets + 2) {
+				builder.add(2 << 27 | dest << 23 | src1 << 19);
+			} else if (kind == sets + 2 && gets) {
+				builder.add(1 << 27 | dest << 23);
+			} else {
+				int opcode = 3 + random.nextInt(21);
+				if (opcode == 10) {
+					opcode = 9;
+				}
+				if (opcode == 23) {
+					opcode = 30;
+				}
+				if (opcode == 15) {
+					builder.add(opcode << 27 | dest << 23 | src1 << 19 | random.nextInt(8));
+				} else if (opcode == 30) {
+					builder.add(opcode << 27 | dest << 23 | src1 << 19 | src2 << 15 | random.nextInt(16) << 11);
+				} else {
+					builder.add(opcode << 27 | dest << 23 | src1 << 19 | src2 << 15);
+				}
+			}
+		}
+	}
+
+	// Loops (some nested) that have an if inside, with R15 and R14 as the loop counters
+	static Program loops(Random random, boolean gets) {
+		Program.Builder builder = new Program.Builder();
+		add(builder, random, 10, 3, gets, 14);
+		for (int loops = 1 + random.nextInt(3); loops > 0; loops--) {
+			builder.add(15 << 23, Float.floatToIntBits(1 + random.nextInt(30))); // Set R15, the trip count
+			int header = builder.length();
+			add(builder, random, 3, 3, gets, 14);
+			if (random.nextBoolean()) {
+				builder.add(14 << 23, Float.floatToIntBits(1 + random.nextInt(8)));
+				int inner = builder.length();
+				add(builder, random, 2, 3, gets, 14);
+				builder.add(Assembler.withTarget(27 << 27 | 14 << 23, inner));
+			}
+			int branch = builder.length();
+			builder.add((23 + random.nextInt(4)) << 27 | random.nextInt(16) << 19 | random.nextInt(16) << 15);
+			add(builder, random, 2, 3, gets, 14);
+			builder.set(branch, Assembler.withTarget(builder.instruction(branch), builder.length()));
+			add(builder, random, 2, 3, gets, 14);
+			builder.add(Assembler.withTarget(27 << 27 | 15 << 23, header));
+		}
+		add(builder, random, 5, 3, gets, 14);
+		return builder.build();
+	}
+
+	// Loops that Load from and Store to a segment of at least 64 elements, indexed by the loop counter in R15
+	static Program memoryLoops(Random random, boolean gets) {
+		Program.Builder builder = new Program.Builder();
+		add(builder, random, 5, 3, gets, 14);
+		for (int loops = 1 + random.nextInt(2); loops > 0; loops--) {
+			builder.add(15 << 23, Float.floatToIntBits(1 + random.nextInt(32))); // Set R15, the trip count and the index
+			int header = builder.length();
+			for (int access = 1 + random.nextInt(4); access > 0; access--) { // Offsets from -1 keep 1 to 32 + 31 in the segment
+				int opcode = random.nextBoolean() ? 28 : 29;
+				builder.add(opcode << 27 | random.nextInt(opcode == 28 ? 14 : 16) << 23 | 15 << 19 | (random.nextInt(33) - 1) & 0x7FFFF);
+				add(builder, random, 2, 3, gets, 14);
+			}
+			int branch = builder.length();
+			builder.add((23 + random.nextInt(4)) << 27 | random.nextInt(16) << 19 | random.nextInt(16) << 15);
+			builder.add(29 << 27 | random.nextInt(14) << 23 | 15 << 19 | random.nextInt(32));
+			builder.set(branch, Assembler.withTarget(builder.instruction(branch), builder.length()));
+			builder.add(Assembler.withTarget(27 << 27 | 15 << 23, header));
+		}
+		add(builder, random, 3, 3, gets, 14);
+		return builder.build();
+	}
+
+	// Starting values for the registers below count, the rest are left at zero
+	static int[] registers(Random random, int count) {
+		int[] registers = new int[16];
+		for (int reg = 0; reg < count; reg++) {
+			registers[reg] = Float.floatToIntBits(random.nextFloat() * 10);
+		}
+		return registers;
+	}
+
+	static Program assemble(String source) {
+		try {
+			return Assembler.assemble(new StringReader(source));
+		} catch (IOException e) {
+			throw new RuntimeException(e); // Can't happen reading from memory
+		}
+	}
+
+	static DataSegment segment(float[] contents) {
+		DataSegment memory = DataSegment.allocate(contents.length);
+		for (int i = 0; i < contents.length; i++) {
+			memory.set(i, contents[i]);
+		}
+		return memory;
+	}
+}
@@ -0,0 +1,150 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The same kernel over arrays, iterators, files and Flow publishers
+class StreamingKernelTest {
+
+	private static final Program SQUARE = RandomPrograms.assemble("Fmul R1, R1, R1\nGet R1\n");
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void appliesTheProgram() {
+		StreamingKernel kernel = new StreamingKernel(SQUARE, 1);
+		assertArrayEquals(new float[] {square(3)}, kernel.apply(new float[] {3}));
+		Iterator<float[]> outputs = kernel.map(List.of(new float[] {1}, new float[] {2}).iterator());
+		assertArrayEquals(new float[] {square(1)}, outputs.next());
+		assertArrayEquals(new float[] {square(2)}, outputs.next());
+		assertFalse(outputs.hasNext());
+	}
+
+	@Test
+	void refusesInputsThatAreNeverRead() {
+		assertThrows(RuntimeException.class, () -> new StreamingKernel(SQUARE, 2));
+		assertThrows(RuntimeException.class, () -> new StreamingKernel(SQUARE, 16));
+		assertThrows(RuntimeException.class, () -> new StreamingKernel(RandomPrograms.assemble("Set R1, #2\nGet R1\n"), 1));
+	}
+
+	@Test
+	void refusesLoadsAndStores() {
+		assertThrows(RuntimeException.class, () -> new StreamingKernel(RandomPrograms.assemble("Load R2, (R1)\nGet R2\n"), 1));
+		assertThrows(RuntimeException.class, () -> new StreamingKernel(RandomPrograms.assemble("Store R1, 0(R0)\nGet R1\n"), 1));
+	}
+
+	// Runs on a TracingEngine, a new trip count for every element
+	@Test
+	void appliesAProgramWithALoop() {
+		StreamingKernel kernel = new StreamingKernel(RandomPrograms.assemble("start: Fadd R2, R2, R1\nLoop R1, start\nGet R2\n"), 1);
+		assertArrayEquals(new float[] {6}, kernel.apply(new float[] {3}));
+		assertArrayEquals(new float[] {3}, kernel.apply(new float[] {2}));
+	}
+
+	@Test
+	void transformsAFile() throws IOException {
+		Path input = directory.resolve("in.bin"), output = directory.resolve("out.bin");
+		Files.write(input, ByteBuffer.allocate(12).putFloat(1).putFloat(2).putFloat(3).array());
+		assertEquals(3, new StreamingKernel(SQUARE, 1).transform(input, output));
+		ByteBuffer results = ByteBuffer.wrap(Files.readAllBytes(output));
+		assertEquals(12, results.capacity());
+		for (int i = 1; i <= 3; i++) {
+			assertEquals(square(i), results.getFloat());
+		}
+	}
+
+	// The publisher delivers on the calling thread, so it all happens in order
+	@Test
+	void stagePassesOnResults() {
+		Collector collector = new Collector();
+		Flow.Processor<float[], float[]> stage = new StreamingKernel(SQUARE, 1).processor();
+		stage.subscribe(collector);
+		try (SubmissionPublisher<float[]> publisher = new SubmissionPublisher<>(Runnable::run, 16)) {
+			publisher.subscribe(stage);
+			for (int i = 1; i <= 3; i++) {
+				publisher.submit(new float[] {i});
+			}
+		}
+		assertEquals(3, collector.items.size());
+		assertArrayEquals(new float[] {square(3)}, collector.items.get(2));
+		assertTrue(collector.completed);
+		assertNull(collector.error);
+	}
+
+	// Publishers that finish before the stage has a subscriber still have to get their end through once one turns up
+	@Test
+	void stagePassesOnAnEarlyCompletion() {
+		Flow.Processor<float[], float[]> stage = new StreamingKernel(SQUARE, 1).processor();
+		SubmissionPublisher<float[]> publisher = new SubmissionPublisher<>(Runnable::run, 16);
+		publisher.subscribe(stage);
+		publisher.close();
+		Collector collector = new Collector();
+		stage.subscribe(collector);
+		assertTrue(collector.items.isEmpty());
+		assertTrue(collector.completed);
+		assertNull(collector.error);
+	}
+
+	@Test
+	void stagePassesOnAnEarlyError() {
+		Flow.Processor<float[], float[]> stage = new StreamingKernel(SQUARE, 1).processor();
+		SubmissionPublisher<float[]> publisher = new SubmissionPublisher<>(Runnable::run, 16);
+		publisher.subscribe(stage);
+		RuntimeException failure = new RuntimeException("Source failed");
+		publisher.closeExceptionally(failure);
+		Collector collector = new Collector();
+		stage.subscribe(collector);
+		assertFalse(collector.completed);
+		assertSame(failure, collector.error);
+	}
+
+	private static float square(float x) {
+		return Float.intBitsToFloat(Processor.ArithmeticLogicUnit.multiplication(Float.floatToIntBits(x), Float.floatToIntBits(x)));
+	}
+
+	// Asks for everything, and keeps it
+	private static final class Collector implements Flow.Subscriber<float[]> {
+		final List<float[]> items = new ArrayList<>();
+		boolean completed;
+		Throwable error;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(float[] item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
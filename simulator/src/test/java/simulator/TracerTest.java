@@ -0,0 +1,82 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+// Both tracers have to write the same lines, and the buffered one has to get all of them out in order
+class TracerTest {
+
+	private static final Program PROGRAM = RandomPrograms.assemble("Set R1, #2\nFadd R2, R1, R1\nGet R2\n");
+
+	@Test
+	void bufferedWritesWhatPrintingDoes() {
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		Processor processor = new Processor(PROGRAM);
+		processor.setTracer(new Tracer.Printing(Tracer.Level.DATAPATH, new PrintStream(printed, true)));
+		processor.start();
+
+		StringWriter buffered = new StringWriter();
+		try (Tracer.Buffered tracer = new Tracer.Buffered(Tracer.Level.DATAPATH, buffered, 16)) {
+			processor = new Processor(PROGRAM);
+			processor.setTracer(tracer);
+			processor.start();
+		}
+		assertEquals(printed.toString(), buffered.toString());
+		assertEquals(3, buffered.toString().lines().count());
+	}
+
+	// Far more records than the ring holds, so the processor has to keep waiting for the writer
+	@Test
+	void bufferedKeepsEveryRecord() {
+		StringWriter out = new StringWriter();
+		try (Tracer.Buffered tracer = new Tracer.Buffered(Tracer.Level.RESULTS, out, 4)) {
+			for (int i = 0; i < 10000; i++) {
+				tracer.result(i & 15, Float.floatToIntBits(i));
+			}
+		}
+		String[] lines = out.toString().split(System.lineSeparator());
+		assertEquals(10000, lines.length);
+		assertEquals("Get R15: 9999.0", lines[9999]);
+	}
+
+	// Once the writer has failed, nothing will ever make room in the ring, so tracing has to stop with its error
+	// instead of waiting forever
+	@Test
+	void bufferedThrowsWhatStoppedTheWriter() {
+		Writer broken = new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("Disk full");
+			}
+
+			@Override
+			public void flush() {
+
+			}
+
+			@Override
+			public void close() {
+
+			}
+		};
+		Tracer.Buffered tracer = new Tracer.Buffered(Tracer.Level.RESULTS, broken, 4);
+		RuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(RuntimeException.class, () -> {
+			for (int i = 0; i < 10000; i++) {
+				tracer.result(1, i);
+			}
+		}));
+		assertInstanceOf(IOException.class, e.getCause());
+		assertThrows(RuntimeException.class, tracer::flush);
+	}
+}
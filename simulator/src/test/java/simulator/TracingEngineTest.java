@@ -0,0 +1,73 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Random loops (some nested) with an if inside. The engine compiles after two trips, so most loops run as traces, and
+// guards fail whenever the if goes the other way
+class TracingEngineTest {
+
+	@Test
+	void loopsMatchTheStructuralEngine() {
+		Random random = new Random(23);
+		int traces = 0;
+		for (int n = 0; n < 300; n++) {
+			Program program = RandomPrograms.loops(random, n % 2 == 0);
+			int[] start = RandomPrograms.registers(random, 14);
+			Processor structural = new Processor(program, Processor.Engine.STRUCTURAL);
+			structural.setRegisters(start);
+			int[] expected = structural.start();
+
+			for (boolean compile : new boolean[] {false, true}) {
+				TracingEngine tracing = new TracingEngine(Processor.DecodedProgram.decode(program), compile, 2);
+				for (int repeat = 0; repeat < 2; repeat++) { // The second time the loops are already compiled when they start
+					int[] registers = start.clone();
+					int[] actual = tracing.run(registers);
+					actual = actual.length == 0 ? registers : actual;
+					assertArrayEquals(expected, actual, "program " + n + (compile ? ", compiled" : ""));
+					assertArrayEquals(structural.registers(), registers, "program " + n + (compile ? ", compiled" : ""));
+				}
+				traces += tracing.traces();
+			}
+		}
+		assertTrue(traces > 0, "no loops were compiled");
+	}
+
+	// The trace has to do its Loads and Stores in the same order as the interpreter
+	@Test
+	void memoryLoopsMatchTheStructuralEngine() {
+		Random random = new Random(30);
+		for (int n = 0; n < 300; n++) {
+			Program program = RandomPrograms.memoryLoops(random, n % 2 == 0);
+			int[] start = RandomPrograms.registers(random, 14);
+			float[] contents = new float[64];
+			for (int i = 0; i < contents.length; i++) {
+				contents[i] = random.nextFloat() * 10;
+			}
+			DataSegment reference = RandomPrograms.segment(contents);
+			Processor structural = new Processor(program, Processor.Engine.STRUCTURAL);
+			structural.setRegisters(start);
+			structural.setMemory(reference);
+			int[] expected = structural.start();
+
+			TracingEngine tracing = new TracingEngine(Processor.DecodedProgram.decode(program), true, 2);
+			for (int repeat = 0; repeat < 2; repeat++) {
+				DataSegment memory = RandomPrograms.segment(contents);
+				int[] registers = start.clone();
+				int[] actual = tracing.execute(registers, memory).values();
+				actual = actual.length == 0 ? registers : actual;
+				assertArrayEquals(expected, actual, "program " + n);
+				assertArrayEquals(structural.registers(), registers, "program " + n);
+				for (int i = 0; i < contents.length; i++) {
+					assertEquals(Float.floatToRawIntBits(reference.get(i)), Float.floatToRawIntBits(memory.get(i)),
+						"program " + n + ", element " + i);
+				}
+			}
+		}
+	}
+}
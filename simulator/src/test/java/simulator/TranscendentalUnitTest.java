@@ -0,0 +1,58 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+// Sin, Cos, Tan and Exp against StrictMath. Anything more than one ulp out fails
+class TranscendentalUnitTest {
+
+	@Test
+	void sine() {
+		assertWithinOneUlp(new Random(13), 10, TranscendentalUnit::sine, StrictMath::sin);
+	}
+
+	@Test
+	void sineOfLargeAngles() {
+		assertWithinOneUlp(new Random(14), 100000, TranscendentalUnit::sine, StrictMath::sin);
+	}
+
+	@Test
+	void cosine() {
+		assertWithinOneUlp(new Random(15), 10, TranscendentalUnit::cosine, StrictMath::cos);
+	}
+
+	@Test
+	void cosineOfLargeAngles() {
+		assertWithinOneUlp(new Random(16), 100000, TranscendentalUnit::cosine, StrictMath::cos);
+	}
+
+	@Test
+	void tangent() {
+		assertWithinOneUlp(new Random(17), 10, TranscendentalUnit::tangent, StrictMath::tan);
+	}
+
+	@Test
+	void exponent() {
+		assertWithinOneUlp(new Random(18), 88, TranscendentalUnit::exponent, StrictMath::exp);
+	}
+
+	private static void assertWithinOneUlp(Random random, float range, IntUnaryOperator operation, DoubleUnaryOperator reference) {
+		long worst = 0;
+		float worstX = 0;
+		for (int i = 0; i < Operands.CORPUS_SIZE / 4; i++) {
+			float x = (random.nextFloat() * 2 - 1) * range;
+			int expected = Float.floatToIntBits((float) reference.applyAsDouble(x));
+			long error = Operands.ulps(expected, operation.applyAsInt(Float.floatToIntBits(x)));
+			if (error > worst) {
+				worst = error;
+				worstX = x;
+			}
+		}
+		assertTrue(worst <= 1, "worst error " + worst + " ulp, at " + worstX);
+	}
+}
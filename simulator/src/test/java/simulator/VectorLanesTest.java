@@ -0,0 +1,27 @@
+package simulator;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Every operation run through the vectorized batch path has to match running it through the ALU lane by lane
+class VectorLanesTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20})
+	void matchesTheScalarAlu(int aluOp) {
+		assumeTrue(VectorLanes.supports(aluOp), "scalar fallback");
+		Random random = new Random(42 + aluOp);
+		int lanes = Operands.CORPUS_SIZE + 3; // Not a multiple of any vector size, so the tail loop gets used too
+		int[] a = Operands.corpus(random, lanes);
+		int[] b = Operands.corpus(random, lanes);
+		int[] expected = new int[lanes];
+		int[] actual = new int[lanes];
+		BatchProcessor.execute(aluOp, a, b, 0, expected);
+		VectorLanes.execute(aluOp, a, b, actual);
+		Operands.assertSameBits("aluOp " + aluOp, a, b, expected, actual);
+	}
+}